@@ -1,36 +1,85 @@
 package com.rey.jsonbatch.apachehttpclient;
 
 import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.JsonProjector;
+import com.rey.jsonbatch.JsonWriter;
 import com.rey.jsonbatch.RequestDispatcher;
 import com.rey.jsonbatch.model.DispatchOptions;
 import com.rey.jsonbatch.model.Request;
 import com.rey.jsonbatch.model.Response;
 import org.apache.http.Header;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-public class ApacheHttpClientRequestDispatcher implements RequestDispatcher {
+public class ApacheHttpClientRequestDispatcher implements RequestDispatcher, Closeable {
 
     private Logger logger = LoggerFactory.getLogger(ApacheHttpClientRequestDispatcher.class);
 
     private HttpClient httpClient;
 
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private boolean bufferedBody;
+
+    // only set by of(): a client passed to a constructor belongs to the caller
+    private boolean ownsClient;
+
     public ApacheHttpClientRequestDispatcher(HttpClient httpClient) {
+        this(httpClient, null);
+    }
+
+    public ApacheHttpClientRequestDispatcher(HttpClient httpClient, PoolingHttpClientConnectionManager connectionManager) {
         this.httpClient = httpClient;
+        this.connectionManager = connectionManager;
+    }
+
+    public static ApacheHttpClientRequestDispatcher of(ConnectionPoolOptions options) {
+        if(options.getMaxTotal() == null || options.getMaxTotal() <= 0)
+            throw new IllegalArgumentException("Max total must be positive: " + options.getMaxTotal());
+        if(options.getDefaultMaxPerRoute() == null || options.getDefaultMaxPerRoute() <= 0)
+            throw new IllegalArgumentException("Default max per route must be positive: " + options.getDefaultMaxPerRoute());
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(options.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(options.getDefaultMaxPerRoute());
+        if(options.getMaxPerRoute() != null)
+            options.getMaxPerRoute().forEach((url, max) -> {
+                if(max == null || max <= 0)
+                    throw new IllegalArgumentException("Max per route must be positive: " + url);
+                connectionManager.setMaxPerRoute(toRoute(url), max);
+            });
+        if(options.getValidateAfterInactivity() != null)
+            connectionManager.setValidateAfterInactivity(options.getValidateAfterInactivity());
+
+        HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager);
+        if(options.getIdleTimeout() != null)
+            builder.evictExpiredConnections().evictIdleConnections(options.getIdleTimeout(), TimeUnit.MILLISECONDS);
+        ApacheHttpClientRequestDispatcher dispatcher = new ApacheHttpClientRequestDispatcher(builder.build(), connectionManager);
+        dispatcher.ownsClient = true;
+        return dispatcher;
     }
 
     @Override
@@ -40,45 +89,99 @@ public class ApacheHttpClientRequestDispatcher implements RequestDispatcher {
         logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
         request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
         if(request.getBody() != null) {
-            String json = jsonProvider.toJson(request.getBody());
-            logger.debug("Request body: {}", json);
-            requestBuilder.setEntity(new StringEntity(json));
+            if(logger.isDebugEnabled())
+                logger.debug("Request body: {}", jsonProvider.toJson(request.getBody()));
+            JsonWriter jsonWriter = new JsonWriter(jsonProvider);
+            byte[] encodedBody = request.getEncodedBody() == null && bufferedBody ? jsonWriter.encode(request.getBody()) : request.getEncodedBody();
+            requestBuilder.setEntity(new JsonEntity(request.getBody(), encodedBody, jsonWriter));
         }
         HttpResponse httpResponse = httpClient.execute(requestBuilder.build());
-        Response response = new Response();
-        Map<String, List<String>> headerMap = new HashMap<>();
-        for(Header header : httpResponse.getAllHeaders()) {
-            headerMap.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
-        }
+        try {
+            Response response = new Response();
+            Map<String, List<String>> headerMap = new HashMap<>();
+            for(Header header : httpResponse.getAllHeaders()) {
+                headerMap.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
+            }
 
-        response.setStatus(httpResponse.getStatusLine().getStatusCode());
-        response.setHeaders(headerMap);
-        if(options.getFailBackAsString())
-            try {
-                String bodyAsString = readString(httpResponse.getEntity().getContent(), "UTF-8");
-                response.setBody(bodyAsString);
+            response.setStatus(httpResponse.getStatusLine().getStatusCode());
+            response.setHeaders(headerMap);
+            if(options.getDiscardBody() || httpResponse.getEntity() == null)
+                return response;
+            if(options.getFailBackAsString())
+                try {
+                    String bodyAsString = readString(httpResponse.getEntity().getContent(), "UTF-8");
+                    response.setBody(bodyAsString);
+                    try {
+                        response.setBody(jsonProvider.parse(bodyAsString));
+                    }
+                    catch (Exception ex) {
+                        logger.warn("Cannot parse response body as JSON", ex);
+                    }
+                }
+                catch (Exception e) {
+                    logger.warn("Cannot parse response body as String", e);
+                    if(!options.getIgnoreParsingError())
+                        throw e;
+                }
+            else
                 try {
-                    response.setBody(jsonProvider.parse(bodyAsString));
+                    if(options.getProjection() != null)
+                        response.setBody(new JsonProjector(options.getProjection()).parse(httpResponse.getEntity().getContent(), jsonProvider));
+                    else
+                        response.setBody(jsonProvider.parse(httpResponse.getEntity().getContent(), "UTF-8"));
                 }
                 catch (Exception ex) {
                     logger.warn("Cannot parse response body as JSON", ex);
+                    if(!options.getIgnoreParsingError())
+                        throw ex;
                 }
-            }
-            catch (Exception e) {
-                logger.warn("Cannot parse response body as String", e);
-                if(!options.getIgnoreParsingError())
-                    throw e;
-            }
-        else
-            try {
-                response.setBody(jsonProvider.parse(httpResponse.getEntity().getContent(), "UTF-8"));
-            }
-            catch (Exception ex) {
-                logger.warn("Cannot parse response body as JSON", ex);
-                if(!options.getIgnoreParsingError())
-                    throw ex;
-            }
-        return response;
+            return response;
+        }
+        finally {
+            HttpClientUtils.closeQuietly(httpResponse);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(!ownsClient)
+            return;
+        ownsClient = false;
+        try {
+            ((CloseableHttpClient)httpClient).close();
+        }
+        finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    public boolean isBufferedBody() {
+        return bufferedBody;
+    }
+
+    public void setBufferedBody(boolean bufferedBody) {
+        this.bufferedBody = bufferedBody;
+    }
+
+    public PoolStats getTotalStats() {
+        if(connectionManager == null)
+            throw new IllegalStateException("No pooling connection manager");
+        return connectionManager.getTotalStats();
+    }
+
+    public PoolStats getStats(String url) {
+        if(connectionManager == null)
+            throw new IllegalStateException("No pooling connection manager");
+        return connectionManager.getStats(toRoute(url));
+    }
+
+    private static HttpRoute toRoute(String url) {
+        URI uri = URI.create(url);
+        if(uri.getHost() == null)
+            throw new IllegalArgumentException("Invalid route url: " + url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        return new HttpRoute(new HttpHost(uri.getHost(), port, secure ? "https" : "http"), null, secure);
     }
 
     private String readString(InputStream inputStream, String charset) throws IOException {
@@ -0,0 +1,58 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConnectionPoolOptions {
+
+    private Integer maxTotal = 20;
+
+    private Integer defaultMaxPerRoute = 2;
+
+    private Map<String, Integer> maxPerRoute = new HashMap<>();
+
+    private Long idleTimeout;
+
+    private Integer validateAfterInactivity = 2000;
+
+    public Integer getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(Integer maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public Integer getDefaultMaxPerRoute() {
+        return defaultMaxPerRoute;
+    }
+
+    public void setDefaultMaxPerRoute(Integer defaultMaxPerRoute) {
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+    }
+
+    public Map<String, Integer> getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(Map<String, Integer> maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public Long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Integer getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(Integer validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+}
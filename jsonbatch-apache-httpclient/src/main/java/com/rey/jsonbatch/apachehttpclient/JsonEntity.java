@@ -0,0 +1,53 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import com.rey.jsonbatch.JsonWriter;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+class JsonEntity extends AbstractHttpEntity {
+
+    private final Object body;
+    private final byte[] encodedBody;
+    private final JsonWriter jsonWriter;
+
+    JsonEntity(Object body, byte[] encodedBody, JsonWriter jsonWriter) {
+        this.body = body;
+        this.encodedBody = encodedBody;
+        this.jsonWriter = jsonWriter;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return encodedBody != null ? encodedBody.length : -1;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new ByteArrayInputStream(encodedBody != null ? encodedBody : jsonWriter.encode(body));
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (encodedBody != null)
+            outputStream.write(encodedBody);
+        else
+            jsonWriter.write(body, outputStream);
+        outputStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,206 @@
+package com.rey.jsonbatch.apachehttpclient
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.jayway.jsonpath.InvalidJsonException
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.json.JsonProvider
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.apache.http.impl.client.HttpClients
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+class ApacheHttpClientRequestDispatcherTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var jsonProvider: JsonProvider
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        jsonProvider = JacksonJsonProvider(ObjectMapper())
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun request(path: String): Request {
+        val request = Request()
+        request.httpMethod = "GET"
+        request.url = server.url(path).toString()
+        request.headers = mapOf()
+        return request
+    }
+
+    @Test(timeout = 20000)
+    fun dispatch__releaseConnection() {
+        server.enqueue(MockResponse().setBody("not json"))
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.enqueue(MockResponse().setBody("""{ "id": 2 }"""))
+        server.enqueue(MockResponse().setResponseCode(204))
+        server.start()
+        val url = server.url("/").toString()
+
+        val options = ConnectionPoolOptions()
+        options.maxTotal = 1
+        options.defaultMaxPerRoute = 1
+        options.idleTimeout = 60000
+        val dispatcher = ApacheHttpClientRequestDispatcher.of(options)
+
+        try {
+            dispatcher.dispatch(request("/0"), jsonProvider, DispatchOptions())
+            throw AssertionError("Parsing error expected")
+        } catch (ex: InvalidJsonException) {
+        }
+        assertEquals(0, dispatcher.totalStats.leased)
+
+        val dispatchOptions = DispatchOptions()
+        dispatchOptions.projection = listOf("$['id']")
+        assertEquals(mapOf("id" to 1), dispatcher.dispatch(request("/1"), jsonProvider, dispatchOptions).body)
+        dispatchOptions.discardBody = true
+        assertEquals(null, dispatcher.dispatch(request("/2"), jsonProvider, dispatchOptions).body)
+        assertEquals(204, dispatcher.dispatch(request("/3"), jsonProvider, DispatchOptions()).status)
+
+        val stats = dispatcher.getStats(url)
+        assertEquals(0, stats.leased)
+        assertEquals(1, stats.available)
+        assertEquals(0, stats.pending)
+        assertEquals(listOf(0, 1, 2, 3), (0 until 4).map { server.takeRequest().sequenceNumber })
+        dispatcher.close()
+    }
+
+    @Test(timeout = 20000)
+    fun dispatch__withJsonBody() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.enqueue(MockResponse().setBody("""{ "id": 2 }"""))
+        server.start()
+        val dispatcher = ApacheHttpClientRequestDispatcher(HttpClients.createDefault())
+
+        val request = request("/0")
+        request.httpMethod = "post"
+        request.body = mapOf("name" to "\u00e9", "tags" to listOf(1, true))
+        dispatcher.dispatch(request, jsonProvider, DispatchOptions())
+        request.encodedBody = """{"name":"b"}""".toByteArray()
+        dispatcher.dispatch(request, jsonProvider, DispatchOptions())
+
+        var recordedRequest = server.takeRequest()
+        assertEquals("POST", recordedRequest.method)
+        assertEquals("application/json; charset=UTF-8", recordedRequest.getHeader("Content-Type"))
+        assertEquals("chunked", recordedRequest.getHeader("Transfer-Encoding"))
+        assertEquals("{\"name\":\"\u00e9\",\"tags\":[1,true]}", recordedRequest.body.readUtf8())
+        recordedRequest = server.takeRequest()
+        assertEquals("12", recordedRequest.getHeader("Content-Length"))
+        assertEquals("""{"name":"b"}""", recordedRequest.body.readUtf8())
+    }
+
+    @Test(timeout = 20000)
+    fun dispatch__withBufferedBody() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.start()
+        val dispatcher = ApacheHttpClientRequestDispatcher(HttpClients.createDefault())
+        dispatcher.isBufferedBody = true
+
+        val request = request("/0")
+        request.httpMethod = "post"
+        request.body = mapOf("name" to "\u00e9")
+        dispatcher.dispatch(request, jsonProvider, DispatchOptions())
+
+        val recordedRequest = server.takeRequest()
+        assertEquals("application/json; charset=UTF-8", recordedRequest.getHeader("Content-Type"))
+        assertEquals(null, recordedRequest.getHeader("Transfer-Encoding"))
+        assertEquals("13", recordedRequest.getHeader("Content-Length"))
+        assertEquals("{\"name\":\"\u00e9\"}", recordedRequest.body.readUtf8())
+    }
+
+    @Test(timeout = 20000)
+    fun dispatch__withContentTypeHeader() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.start()
+        val dispatcher = ApacheHttpClientRequestDispatcher(HttpClients.createDefault())
+
+        val request = request("/0")
+        request.httpMethod = "post"
+        request.headers = mapOf("Content-Type" to listOf("text/plain; charset=ISO-8859-1"))
+        request.body = mapOf("name" to "a")
+        dispatcher.dispatch(request, jsonProvider, DispatchOptions())
+
+        val recordedRequest = server.takeRequest()
+        assertEquals(listOf("text/plain; charset=ISO-8859-1"), recordedRequest.headers.values("Content-Type"))
+        assertEquals("""{"name":"a"}""", recordedRequest.body.readUtf8())
+    }
+
+    @Test
+    fun of__maxPerRoute() {
+        val options = ConnectionPoolOptions()
+        options.maxTotal = 50
+        options.defaultMaxPerRoute = 5
+        options.maxPerRoute = mapOf("http://service.local" to 20, "https://secure.local:8443" to 10)
+        val dispatcher = ApacheHttpClientRequestDispatcher.of(options)
+
+        assertEquals(50, dispatcher.totalStats.max)
+        assertEquals(20, dispatcher.getStats("http://service.local:80/api").max)
+        assertEquals(10, dispatcher.getStats("https://secure.local:8443").max)
+        assertEquals(5, dispatcher.getStats("http://other.local").max)
+        dispatcher.close()
+    }
+
+    @Test(timeout = 20000)
+    fun close__ownedClient() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.start()
+        val options = ConnectionPoolOptions()
+        options.maxTotal = 1
+        options.defaultMaxPerRoute = 1
+        options.idleTimeout = 60000
+        val dispatcher = ApacheHttpClientRequestDispatcher.of(options)
+        dispatcher.dispatch(request("/0"), jsonProvider, DispatchOptions())
+
+        dispatcher.close()
+        dispatcher.close()
+        try {
+            dispatcher.dispatch(request("/1"), jsonProvider, DispatchOptions())
+            throw AssertionError("Closed client expected")
+        } catch (ex: IllegalStateException) {
+        }
+    }
+
+    @Test(timeout = 20000)
+    fun close__callerClient() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.start()
+        val httpClient = HttpClients.createDefault()
+        val dispatcher = ApacheHttpClientRequestDispatcher(httpClient)
+
+        dispatcher.close()
+        assertEquals(mapOf("id" to 1), dispatcher.dispatch(request("/0"), jsonProvider, DispatchOptions()).body)
+        httpClient.close()
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun getTotalStats__withoutPool() {
+        ApacheHttpClientRequestDispatcher(HttpClients.createDefault()).totalStats
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun getStats__invalidUrl() {
+        val options = ConnectionPoolOptions()
+        options.maxTotal = 1
+        options.defaultMaxPerRoute = 1
+        ApacheHttpClientRequestDispatcher.of(options).use { it.getStats("/api") }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun of__invalidOptions() {
+        val options = ConnectionPoolOptions()
+        options.defaultMaxPerRoute = 0
+        ApacheHttpClientRequestDispatcher.of(options)
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.rey.jsonbatch.apachehttpclient5;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.JsonWriter;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+public class ApacheHttpAsyncClientRequestDispatcher implements AsyncRequestDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(ApacheHttpAsyncClientRequestDispatcher.class);
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    public static final long DEFAULT_MAX_BODY_SIZE = 64L * 1024 * 1024;
+
+    private CloseableHttpAsyncClient httpAsyncClient;
+
+    private Executor executor;
+
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    private long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+    public ApacheHttpAsyncClientRequestDispatcher(CloseableHttpAsyncClient httpAsyncClient, Executor executor) {
+        if(executor == null)
+            throw new IllegalArgumentException("Executor must not be null");
+        this.httpAsyncClient = httpAsyncClient;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        AsyncRequestBuilder requestBuilder = AsyncRequestBuilder.create(request.getHttpMethod().toUpperCase());
+        requestBuilder.setUri(request.getUrl());
+        logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
+        request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
+        if(request.getBody() != null) {
+            if(logger.isDebugEnabled())
+                logger.debug("Request body: {}", jsonProvider.toJson(request.getBody()));
+            byte[] encodedBody = request.getEncodedBody() != null ? request.getEncodedBody() : new JsonWriter(jsonProvider).encode(request.getBody());
+            requestBuilder.setEntity(encodedBody, ContentType.APPLICATION_JSON);
+        }
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Future<Response> httpFuture = httpAsyncClient.execute(requestBuilder.build(), new JsonResponseConsumer(jsonProvider, options, executor, windowSize, maxBodySize), new FutureCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                logger.warn("Cannot execute request {}: {}", request.getHttpMethod(), request.getUrl(), ex);
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        future.whenComplete((response, ex) -> {
+            if(future.isCancelled())
+                httpFuture.cancel(true);
+        });
+        return future;
+    }
+
+    public CloseableHttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClient;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        if(windowSize <= 0)
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        this.windowSize = windowSize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(long maxBodySize) {
+        if(maxBodySize <= 0 || maxBodySize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Max body size must be positive and fit in a byte array: " + maxBodySize);
+        this.maxBodySize = maxBodySize;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.rey.jsonbatch.apachehttpclient5;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Hands body chunks from the I/O reactor to a parser thread.
+// The server only gets new capacity for the bytes the parser has read, so at most windowSize bytes are buffered or in flight.
+class BodyInputStream extends InputStream {
+
+    private final int windowSize;
+
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+
+    private CapacityChannel capacityChannel;
+
+    // bytes received but not read by the parser yet
+    private int buffered;
+
+    // capacity granted to the server and not used yet
+    private int granted;
+
+    private boolean ended;
+
+    private boolean closed;
+
+    private IOException failure;
+
+    BodyInputStream(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        int increment;
+        synchronized (this) {
+            this.capacityChannel = capacityChannel;
+            increment = takeIncrement();
+        }
+        grant(capacityChannel, increment);
+    }
+
+    void write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        CapacityChannel channel;
+        int increment;
+        synchronized (this) {
+            granted = Math.max(0, granted - length);
+            if (closed) {
+                src.position(src.limit());
+            } else {
+                ByteBuffer chunk = ByteBuffer.allocate(length);
+                chunk.put(src);
+                chunk.flip();
+                chunks.add(chunk);
+                buffered += length;
+                notifyAll();
+            }
+            channel = capacityChannel;
+            increment = takeIncrement();
+        }
+        grant(channel, increment);
+    }
+
+    synchronized void end() {
+        ended = true;
+        notifyAll();
+    }
+
+    // ignored once the body is complete or the parser is done with it
+    synchronized void abort(IOException failure) {
+        if (ended || closed || this.failure != null)
+            return;
+        this.failure = failure;
+        notifyAll();
+    }
+
+    synchronized IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        CapacityChannel channel;
+        int increment;
+        int count = 0;
+        synchronized (this) {
+            while (chunks.isEmpty() && !ended && !closed && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for response body");
+                }
+            }
+            if (failure != null)
+                throw failure;
+            if (closed)
+                throw new IOException("Stream closed");
+            if (chunks.isEmpty())
+                return -1;
+            while (count < len && !chunks.isEmpty()) {
+                ByteBuffer chunk = chunks.peek();
+                int n = Math.min(len - count, chunk.remaining());
+                chunk.get(b, off + count, n);
+                count += n;
+                if (!chunk.hasRemaining())
+                    chunks.poll();
+            }
+            buffered -= count;
+            channel = capacityChannel;
+            increment = takeIncrement();
+        }
+        grant(channel, increment);
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+        return buffered;
+    }
+
+    // drops what is buffered; the rest of the body is discarded as it arrives so the stream still completes
+    @Override
+    public void close() throws IOException {
+        CapacityChannel channel;
+        int increment;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            chunks.clear();
+            buffered = 0;
+            notifyAll();
+            channel = capacityChannel;
+            increment = ended ? 0 : takeIncrement();
+        }
+        grant(channel, increment);
+    }
+
+    // must hold the lock; waits for half a window to free up unless the parser has drained everything
+    private int takeIncrement() {
+        if (capacityChannel == null)
+            return 0;
+        int increment = windowSize - buffered - granted;
+        if (increment <= 0 || (buffered > 0 && increment < windowSize / 2))
+            return 0;
+        granted += increment;
+        return increment;
+    }
+
+    private void grant(CapacityChannel channel, int increment) throws IOException {
+        if (increment > 0)
+            channel.update(increment);
+    }
+
+}
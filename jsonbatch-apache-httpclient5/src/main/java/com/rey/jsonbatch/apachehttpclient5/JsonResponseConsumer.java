@@ -0,0 +1,213 @@
+package com.rey.jsonbatch.apachehttpclient5;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.JsonProjector;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Response;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+class JsonResponseConsumer implements AsyncResponseConsumer<Response> {
+
+    private Logger logger = LoggerFactory.getLogger(JsonResponseConsumer.class);
+
+    private final JsonProvider jsonProvider;
+
+    private final DispatchOptions options;
+
+    private final Executor executor;
+
+    private final int windowSize;
+
+    private final long maxBodySize;
+
+    private BodyInputStream body;
+
+    private long contentLength;
+
+    private long size;
+
+    private Response response;
+
+    private FutureCallback<Response> resultCallback;
+
+    private boolean finished;
+
+    JsonResponseConsumer(JsonProvider jsonProvider, DispatchOptions options, Executor executor, int windowSize, long maxBodySize) {
+        this.jsonProvider = jsonProvider;
+        this.options = options;
+        this.executor = executor;
+        this.windowSize = windowSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse httpResponse, EntityDetails entityDetails, HttpContext context, FutureCallback<Response> resultCallback) throws IOException {
+        this.resultCallback = resultCallback;
+        if(entityDetails != null && !options.getDiscardBody() && entityDetails.getContentLength() > maxBodySize)
+            throw bodyTooLarge();
+        response = new Response();
+        Map<String, List<String>> headerMap = new HashMap<>();
+        for(Header header : httpResponse.getHeaders()) {
+            headerMap.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
+        }
+
+        response.setStatus(httpResponse.getCode());
+        response.setHeaders(headerMap);
+        if(entityDetails == null) {
+            finish(response, null);
+            return;
+        }
+        contentLength = entityDetails.getContentLength();
+        body = new BodyInputStream(windowSize);
+        if(options.getDiscardBody())
+            body.close();
+        else
+            executor.execute(this::parse);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse httpResponse, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        if(body != null)
+            body.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        size += src.remaining();
+        if(!options.getDiscardBody() && size > maxBodySize) {
+            IOException ex = bodyTooLarge();
+            body.abort(ex);
+            throw ex;
+        }
+        body.write(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) {
+        body.end();
+        if(options.getDiscardBody())
+            finish(response, null);
+    }
+
+    // runs on the executor, reading the body while the I/O reactor is still receiving it
+    private void parse() {
+        Object value;
+        try {
+            value = parseBody();
+        }
+        catch (Exception ex) {
+            finish(null, ex);
+            return;
+        }
+        finally {
+            try {
+                body.close();
+            }
+            catch (IOException ex) {
+                logger.warn("Cannot release response body", ex);
+            }
+        }
+        if(body.getFailure() != null) {
+            finish(null, body.getFailure());
+            return;
+        }
+        response.setBody(value);
+        finish(response, null);
+    }
+
+    private Object parseBody() throws Exception {
+        if(options.getFailBackAsString()) {
+            String bodyAsString;
+            try {
+                bodyAsString = readString();
+            }
+            catch (IOException ex) {
+                logger.warn("Cannot parse response body as String", ex);
+                if(!options.getIgnoreParsingError())
+                    throw ex;
+                return null;
+            }
+            try {
+                return jsonProvider.parse(bodyAsString);
+            }
+            catch (Exception ex) {
+                logger.warn("Cannot parse response body as JSON", ex);
+                return bodyAsString;
+            }
+        }
+        try {
+            if(options.getProjection() != null)
+                return new JsonProjector(options.getProjection()).parse(body, jsonProvider);
+            return jsonProvider.parse(body, "UTF-8");
+        }
+        catch (Exception ex) {
+            logger.warn("Cannot parse response body as JSON", ex);
+            if(!options.getIgnoreParsingError())
+                throw ex;
+            return null;
+        }
+    }
+
+    // decodes straight from the output stream's buffer, sized upfront when the length is known
+    private String readString() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : windowSize);
+        byte[] buffer = new byte[8192];
+        int count;
+        while((count = body.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, count);
+        }
+        return outputStream.toString("UTF-8");
+    }
+
+    private IOException bodyTooLarge() {
+        return new IOException("Response body exceeds max body size of " + maxBodySize + " bytes");
+    }
+
+    private void finish(Response response, Exception ex) {
+        synchronized (this) {
+            if(finished)
+                return;
+            finished = true;
+        }
+        if(ex != null)
+            resultCallback.failed(ex);
+        else
+            resultCallback.completed(response);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        if(body != null)
+            body.abort(cause instanceof IOException ? (IOException) cause : new IOException(cause));
+        if(resultCallback != null)
+            finish(null, cause);
+    }
+
+    @Override
+    public void releaseResources() {
+        if(body != null)
+            body.abort(new IOException("Response stream released before the body ended"));
+    }
+
+}
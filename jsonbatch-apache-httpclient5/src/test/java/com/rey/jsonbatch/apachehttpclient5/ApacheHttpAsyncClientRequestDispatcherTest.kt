@@ -0,0 +1,220 @@
+package com.rey.jsonbatch.apachehttpclient5
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.PropertyNamingStrategy
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.InvalidJsonException
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.JsonBuilder
+import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import okhttp3.Protocol
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients
+import org.apache.hc.core5.io.CloseMode
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ApacheHttpAsyncClientRequestDispatcherTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var configuration: Configuration
+
+    private var httpAsyncClient: CloseableHttpAsyncClient? = null
+
+    private lateinit var executor: ExecutorService
+
+    private val parseCount = AtomicInteger()
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        objectMapper = ObjectMapper()
+        objectMapper.propertyNamingStrategy = PropertyNamingStrategy.SNAKE_CASE
+        configuration = Configuration.builder()
+                .jsonProvider(JacksonJsonProvider(objectMapper))
+                .mappingProvider(JacksonMappingProvider(objectMapper))
+                .build()
+        executor = Executors.newFixedThreadPool(4)
+    }
+
+    @After
+    fun tearDown() {
+        httpAsyncClient?.close(CloseMode.IMMEDIATE)
+        executor.shutdownNow()
+        server.shutdown()
+    }
+
+    private fun start(client: CloseableHttpAsyncClient): ApacheHttpAsyncClientRequestDispatcher {
+        httpAsyncClient = client
+        client.start()
+        return ApacheHttpAsyncClientRequestDispatcher(client, Executor {
+            parseCount.incrementAndGet()
+            executor.execute(it)
+        })
+    }
+
+    private fun request(path: String): Request {
+        val request = Request()
+        request.httpMethod = "GET"
+        request.url = server.url(path).toString()
+        request.headers = mapOf()
+        return request
+    }
+
+    @Test
+    fun executeAsync__withHttp2() {
+        val latch = CountDownLatch(8)
+        server.protocols = listOf(Protocol.H2_PRIOR_KNOWLEDGE)
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                latch.countDown()
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    return MockResponse().setResponseCode(504)
+                return MockResponse().setBody("""{ "id": ${request.path!!.substring(1)}, "ignored": [1, 2, 3] }""")
+            }
+        }
+        server.start()
+
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 8\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "concurrency": 8,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "${server.url("/")}@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[0].times[*][*].body.id"
+                    }
+                ]
+            }
+        """.let { objectMapper.readValue(it, BatchTemplate::class.java) }
+
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), start(HttpAsyncClients.createHttp2Default()))
+
+        val response = engine.executeAsync(Request(), template).get(20, TimeUnit.SECONDS)
+        assertEquals(listOf(0, 1, 2, 3, 4, 5, 6, 7), response.body)
+        val sequenceNumbers = (0 until 8).map { server.takeRequest().sequenceNumber }.toSet()
+        assertEquals((0 until 8).toSet(), sequenceNumbers)
+    }
+
+    @Test
+    fun dispatch__withDispatchOptions() {
+        server.enqueue(MockResponse().addHeader("X-Id", "1").setBody("""{ "id": 1, "items": [ { "id": 2, "name": "a" } ] }"""))
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.enqueue(MockResponse().setBody("not json"))
+        server.enqueue(MockResponse().setBody("not json"))
+        server.start()
+        val dispatcher = start(HttpAsyncClients.createDefault())
+        val jsonProvider = configuration.jsonProvider()
+
+        var options = DispatchOptions()
+        options.projection = listOf("$['items'][*]['name']")
+        var response = dispatcher.dispatch(request("/0"), jsonProvider, options).get(20, TimeUnit.SECONDS)
+        assertEquals(200, response.status)
+        assertEquals(listOf("1"), response.headers["X-Id"])
+        assertEquals(mapOf("items" to listOf(mapOf("name" to "a"))), response.body)
+
+        options = DispatchOptions()
+        options.discardBody = true
+        response = dispatcher.dispatch(request("/1"), jsonProvider, options).get(20, TimeUnit.SECONDS)
+        assertEquals(200, response.status)
+        assertEquals(null, response.body)
+
+        options = DispatchOptions()
+        options.failBackAsString = true
+        response = dispatcher.dispatch(request("/2"), jsonProvider, options).get(20, TimeUnit.SECONDS)
+        assertEquals("not json", response.body)
+
+        try {
+            dispatcher.dispatch(request("/3"), jsonProvider, DispatchOptions()).get(20, TimeUnit.SECONDS)
+            throw AssertionError("Parsing error expected")
+        } catch (ex: ExecutionException) {
+            assertTrue(ex.cause is InvalidJsonException)
+        }
+    }
+
+    @Test
+    fun dispatch__withSmallWindow() {
+        val body = (0 until 5000).joinToString(", ", "{ \"items\": [", "] }") { """{ "id": $it, "name": "item $it" }""" }
+        server.enqueue(MockResponse().setBody(body))
+        server.enqueue(MockResponse().setChunkedBody(body, 1000))
+        server.start()
+        val dispatcher = start(HttpAsyncClients.createDefault())
+        dispatcher.windowSize = 1024
+        val jsonProvider = configuration.jsonProvider()
+
+        val options = DispatchOptions()
+        options.projection = listOf("$['items'][*]['id']")
+        var response = dispatcher.dispatch(request("/0"), jsonProvider, options).get(20, TimeUnit.SECONDS)
+        assertEquals((0 until 5000).toList(), (response.body as Map<*, *>)["items"].let { items -> (items as List<*>).map { (it as Map<*, *>)["id"] } })
+
+        options.projection = null
+        options.failBackAsString = true
+        response = dispatcher.dispatch(request("/1"), jsonProvider, options).get(20, TimeUnit.SECONDS)
+        assertEquals(objectMapper.readValue(body, Map::class.java), response.body)
+        assertEquals(2, parseCount.get())
+    }
+
+    @Test
+    fun dispatch__exceedMaxBodySize() {
+        val body = """{ "id": 1, "items": [ { "id": 2, "name": "a" }, { "id": 3, "name": "b" } ] }"""
+        server.enqueue(MockResponse().setBody(body))
+        server.enqueue(MockResponse().setChunkedBody(body, 8))
+        server.enqueue(MockResponse().setChunkedBody(body, 8))
+        server.start()
+        val dispatcher = start(HttpAsyncClients.createDefault())
+        dispatcher.windowSize = 8
+        dispatcher.maxBodySize = 32
+        val jsonProvider = configuration.jsonProvider()
+
+        for (path in listOf("/0", "/1")) {
+            try {
+                dispatcher.dispatch(request(path), jsonProvider, DispatchOptions()).get(20, TimeUnit.SECONDS)
+                throw AssertionError("Max body size error expected")
+            } catch (ex: ExecutionException) {
+                assertTrue(ex.cause is IOException)
+            }
+        }
+
+        dispatcher.maxBodySize = body.length.toLong()
+        val response = dispatcher.dispatch(request("/2"), jsonProvider, DispatchOptions()).get(20, TimeUnit.SECONDS)
+        assertEquals(objectMapper.readValue(body, Map::class.java), response.body)
+    }
+
+}
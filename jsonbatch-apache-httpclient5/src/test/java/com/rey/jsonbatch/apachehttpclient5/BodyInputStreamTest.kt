@@ -0,0 +1,93 @@
+package com.rey.jsonbatch.apachehttpclient5
+
+import org.apache.hc.core5.http.nio.CapacityChannel
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+class BodyInputStreamTest {
+
+    private lateinit var grants: MutableList<Int>
+
+    private lateinit var capacityChannel: CapacityChannel
+
+    @Before
+    fun setUp() {
+        grants = mutableListOf()
+        capacityChannel = CapacityChannel { grants.add(it) }
+    }
+
+    @Test
+    fun read__grantsOnlyConsumedBytes() {
+        val stream = BodyInputStream(8)
+        stream.updateCapacity(capacityChannel)
+        assertEquals(listOf(8), grants)
+
+        stream.write(ByteBuffer.wrap("01234567".toByteArray()))
+        stream.updateCapacity(capacityChannel)
+        assertEquals(listOf(8), grants)
+
+        val buffer = ByteArray(8)
+        assertEquals(3, stream.read(buffer, 0, 3))
+        assertEquals(listOf(8), grants)
+        assertEquals(5, stream.read(buffer, 3, 5))
+        assertEquals(listOf(8, 8), grants)
+        assertArrayEquals("01234567".toByteArray(), buffer)
+
+        stream.updateCapacity(capacityChannel)
+        assertEquals(listOf(8, 8), grants)
+        stream.write(ByteBuffer.wrap("89".toByteArray()))
+        stream.end()
+        assertEquals(2, stream.read(buffer))
+        assertEquals(-1, stream.read(buffer))
+    }
+
+    @Test
+    fun read__waitsForData() {
+        val stream = BodyInputStream(8)
+        stream.updateCapacity(capacityChannel)
+        val result = CompletableFuture.supplyAsync { String(stream.readBytes()) }
+
+        stream.write(ByteBuffer.wrap("abc".toByteArray()))
+        stream.write(ByteBuffer.wrap("def".toByteArray()))
+        stream.end()
+        assertEquals("abcdef", result.get(10, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun close__discardsRemainingBody() {
+        val stream = BodyInputStream(8)
+        stream.updateCapacity(capacityChannel)
+        stream.write(ByteBuffer.wrap("01234567".toByteArray()))
+        stream.close()
+        assertEquals(listOf(8, 8), grants)
+
+        stream.write(ByteBuffer.wrap("0123".toByteArray()))
+        stream.write(ByteBuffer.wrap("4567".toByteArray()))
+        assertEquals(listOf(8, 8, 4, 4), grants)
+        assertEquals(0, stream.available())
+    }
+
+    @Test(expected = IOException::class)
+    fun read__afterAbort() {
+        val stream = BodyInputStream(8)
+        stream.write(ByteBuffer.wrap("01".toByteArray()))
+        stream.abort(IOException("Response body exceeds max body size of 1 bytes"))
+        stream.read()
+    }
+
+    @Test
+    fun abort__ignoredAfterEnd() {
+        val stream = BodyInputStream(8)
+        stream.write(ByteBuffer.wrap("01".toByteArray()))
+        stream.end()
+        stream.abort(IOException("released"))
+        assertEquals("01", String(stream.readBytes()))
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.compiler.CompiledAccumulatorTemplate.Operation;
+import com.rey.jsonbatch.function.MathUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+class Accumulators {
+
+    static Object init(Operation operation) {
+        switch (operation) {
+            case SUM:
+            case COUNT:
+                return BigInteger.ZERO;
+            case CONCAT:
+            case APPEND:
+                return new ArrayList<>();
+            default:
+                return null;
+        }
+    }
+
+    static Object accumulate(Operation operation, Object current, Object value) {
+        switch (operation) {
+            case SUM: {
+                Object result = current;
+                for (Object item : flatten(value, new ArrayList<>()))
+                    result = add(result, toNumber(item));
+                return result;
+            }
+            case COUNT:
+                return ((BigInteger) current).add(BigInteger.valueOf(flatten(value, new ArrayList<>()).size()));
+            case MIN:
+            case MAX: {
+                Object result = current;
+                for (Object item : flatten(value, new ArrayList<>())) {
+                    Object number = toNumber(item);
+                    if (result == null)
+                        result = number;
+                    else {
+                        int comparison = toBigDecimal(number).compareTo(toBigDecimal(result));
+                        if (operation == Operation.MIN ? comparison < 0 : comparison > 0)
+                            result = number;
+                    }
+                }
+                return result;
+            }
+            case CONCAT:
+                if (value instanceof List)
+                    ((List<Object>) current).addAll((List<Object>) value);
+                else if (value != null)
+                    ((List<Object>) current).add(value);
+                return current;
+            case APPEND:
+                ((List<Object>) current).add(value);
+                return current;
+            default:
+                throw new IllegalArgumentException("Not support accumulator operation: " + operation);
+        }
+    }
+
+    private static List<Object> flatten(Object value, List<Object> result) {
+        if (value instanceof List) {
+            for (Object item : (List<Object>) value)
+                flatten(item, result);
+        } else if (value != null)
+            result.add(value);
+        return result;
+    }
+
+    private static Object toNumber(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof BigInteger)
+            return MathUtils.toBigInteger(value);
+        BigDecimal number = MathUtils.toBigDecimal(value);
+        if (number == null)
+            throw new IllegalArgumentException("Cannot accumulate [" + value.getClass() + "] type");
+        return number;
+    }
+
+    private static BigDecimal toBigDecimal(Object number) {
+        return number instanceof BigInteger ? new BigDecimal((BigInteger) number) : (BigDecimal) number;
+    }
+
+    private static Object add(Object a, Object b) {
+        if (a instanceof BigInteger && b instanceof BigInteger)
+            return ((BigInteger) a).add((BigInteger) b);
+        return toBigDecimal(a).add(toBigDecimal(b));
+    }
+
+}
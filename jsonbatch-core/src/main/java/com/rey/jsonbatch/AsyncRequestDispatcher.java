@@ -0,0 +1,14 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncRequestDispatcher {
+
+    CompletableFuture<Response> dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options);
+
+}
@@ -3,16 +3,21 @@ package com.rey.jsonbatch;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.compiler.CompiledAccumulatorTemplate;
+import com.rey.jsonbatch.compiler.CompiledBatchTemplate;
+import com.rey.jsonbatch.compiler.CompiledLoopTemplate;
+import com.rey.jsonbatch.compiler.CompiledParallelTemplate;
+import com.rey.jsonbatch.compiler.CompiledRequestTemplate;
+import com.rey.jsonbatch.compiler.CompiledResponseTemplate;
+import com.rey.jsonbatch.compiler.CompiledRetentionOptions;
+import com.rey.jsonbatch.compiler.CompiledVarTemplate;
+import com.rey.jsonbatch.compiler.Schema;
+import com.rey.jsonbatch.compiler.TemplateCompiler;
 import com.rey.jsonbatch.function.MathUtils;
 import com.rey.jsonbatch.model.BatchTemplate;
 import com.rey.jsonbatch.model.DispatchOptions;
-import com.rey.jsonbatch.model.LoopOptions;
-import com.rey.jsonbatch.model.LoopTemplate;
 import com.rey.jsonbatch.model.Request;
-import com.rey.jsonbatch.model.RequestTemplate;
 import com.rey.jsonbatch.model.Response;
-import com.rey.jsonbatch.model.ResponseTemplate;
-import com.rey.jsonbatch.model.VarTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,9 +27,20 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
@@ -34,7 +50,13 @@ public class BatchEngine {
 
     private Configuration configuration;
     private JsonBuilder jsonBuilder;
-    private RequestDispatcher requestDispatcher;
+    private AsyncRequestDispatcher requestDispatcher;
+    private TemplateCompiler templateCompiler;
+    private JsonPruner jsonPruner;
+    private JsonWriter jsonWriter;
+    private Map<Schema, byte[]> encodedBodies = Collections.synchronizedMap(new WeakHashMap<>());
+    private boolean pipelining;
+    private boolean pruning;
 
     private static final String KEY_ORIGINAL = "original";
     private static final String KEY_REQUESTS = "requests";
@@ -42,158 +64,123 @@ public class BatchEngine {
     private static final String KEY_COUNTER = "counter";
     private static final String KEY_TIMES = "times";
     private static final String KEY_VARS = "vars";
+    private static final String KEY_BRANCHES = "branches";
+    private static final String KEY_ACCUMULATORS = "accumulators";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_BODY = "body";
 
     public BatchEngine(Configuration configuration,
                        JsonBuilder jsonBuilder,
                        RequestDispatcher requestDispatcher) {
+        this(configuration, jsonBuilder, new BlockingRequestDispatcherAdapter(requestDispatcher));
+    }
+
+    public BatchEngine(Configuration configuration,
+                       JsonBuilder jsonBuilder,
+                       AsyncRequestDispatcher requestDispatcher) {
         this.configuration = configuration;
         this.jsonBuilder = jsonBuilder;
         this.requestDispatcher = requestDispatcher;
+        this.templateCompiler = new TemplateCompiler(jsonBuilder);
+        this.jsonPruner = new JsonPruner(configuration);
+        this.jsonWriter = new JsonWriter(configuration.jsonProvider());
     }
 
-    public Response execute(Request originalRequest, BatchTemplate template) throws Exception {
-        logger.info("Start executing batch with [{}] original request", originalRequest);
-        DocumentContext context = JsonPath.using(configuration).parse("{}");
-        Map<String, Object> jsonContext = context.json();
-        jsonContext.put(KEY_ORIGINAL, originalRequest.toMap());
-        jsonContext.put(KEY_REQUESTS, new ArrayList<>());
-        jsonContext.put(KEY_RESPONSES, new ArrayList<>());
-        if (template.getDispatchOptions() == null)
-            template.setDispatchOptions(new DispatchOptions());
-        if (template.getLoopOptions() == null)
-            template.setLoopOptions(new LoopOptions());
-
-        Deque<Step> queue = new ArrayDeque<>();
-        Step step = buildStep(template.getRequests(), (List) jsonContext.get(KEY_REQUESTS), (List) jsonContext.get(KEY_RESPONSES), context, 0);
-        if (step != null)
-            queue.push(step);
-
-        while (!queue.isEmpty()) {
-            step = queue.pop();
-
-            if (isLoopStep(step)) {
-                LoopTemplate loopTemplate = step.requestTemplate.getLoop();
-                logger.info("Start loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
-                if (step.loopTime == 0) {
-                    Object counter = jsonBuilder.build(loopTemplate.getCounterInit(), context);
-
-                    step.loopRequest = new HashMap<>();
-                    step.loopRequest.put(KEY_COUNTER, counter);
-                    step.loopRequest.put(KEY_TIMES, new ArrayList<>());
-                    step.requests.add(step.loopRequest);
+    public CompiledBatchTemplate compile(BatchTemplate template) {
+        return templateCompiler.compile(template);
+    }
 
-                    step.loopResponse = new HashMap<>();
-                    step.loopResponse.put(KEY_TIMES, new ArrayList<>());
-                    step.responses.add(step.loopResponse);
-                } else {
-                    Object counter = jsonBuilder.build(loopTemplate.getCounterUpdate(), context);
-                    step.loopRequest.put(KEY_COUNTER, counter);
-                }
+    public boolean isPruning() {
+        return pruning;
+    }
 
-                if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
-                    logger.warn("Loop request with [{}] index exceed max loop time", step.index);
-                } else {
-                    boolean shouldLoop = MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true);
-                    if (shouldLoop) {
-                        Step nextStep = buildStep(loopTemplate.getRequests(), new ArrayList<>(), new ArrayList<>(), context, 0);
-                        if (nextStep != null) {
-                            ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(nextStep.requests);
-                            ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(nextStep.responses);
-                            queue.push(step);
-                            queue.push(nextStep);
-                            step.loopTime++;
-                            continue;
-                        }
-                    }
-                }
+    public void setPruning(boolean pruning) {
+        this.pruning = pruning;
+    }
 
-                processVars(step.requestTemplate.getVars(), context, jsonContext);
+    public boolean isPipelining() {
+        return pipelining;
+    }
 
-                ResponseTemplate responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
-                if (responseTemplate != null) {
-                    logger.info("Found break response");
-                    Response response = buildResponse(responseTemplate, context, 200);
-                    logger.info("Done executing batch with [{}] original request", originalRequest);
-                    return response;
-                }
-                step = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, context, step.index + 1);
-                if (step != null)
-                    queue.push(step);
-            } else {
-                logger.info("Start executing request with [{}] index", step.index);
-                Request request = buildRequest(step.requestTemplate, context);
-                Response response = requestDispatcher.dispatch(request, configuration.jsonProvider(), template.getDispatchOptions());
-                logger.info("Done executing request with [{}] index", step.index);
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
 
-                Response transformedResponse = transformResponse(response, step.requestTemplate.getTransformers());
-                step.requests.add(request.toMap());
-                step.responses.add(transformedResponse.toMap());
+    public Response execute(Request originalRequest, BatchTemplate template) throws Exception {
+        return execute(originalRequest, compile(template));
+    }
 
-                processVars(step.requestTemplate.getVars(), context, jsonContext);
+    public Response execute(Request originalRequest, CompiledBatchTemplate template) throws Exception {
+        return execute(originalRequest, template, null);
+    }
 
-                ResponseTemplate responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
-                if (responseTemplate != null) {
-                    logger.info("Found break response");
-                    response = buildResponse(responseTemplate, context, 200);
-                    logger.info("Done executing batch with [{}] original request", originalRequest);
-                    return response;
-                }
+    public Response execute(Request originalRequest, CompiledBatchTemplate template, LoopSink loopSink) throws Exception {
+        try {
+            return executeAsync(originalRequest, template, loopSink).get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw ex;
+        }
+    }
 
-                step = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, context, step.index + 1);
-                if (step != null)
-                    queue.push(step);
-            }
+    public CompletableFuture<Response> executeAsync(Request originalRequest, BatchTemplate template) {
+        CompiledBatchTemplate compiledTemplate;
+        try {
+            compiledTemplate = compile(template);
+        } catch (RuntimeException ex) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
         }
+        return executeAsync(originalRequest, compiledTemplate);
+    }
 
-        Response response;
-        ResponseTemplate responseTemplate = chooseResponseTemplate(template.getResponses(), context);
-        if (responseTemplate != null) {
-            logger.info("Found final response");
-            response = buildResponse(responseTemplate, context, 200);
-        } else {
-            logger.info("Not found final response. Return all batch responses");
-            response = new Response();
-            response.setStatus(200);
-            response.setBody(jsonContext);
-        }
-
-        logger.info("Done executing batch with [{}] original request", originalRequest);
-        return response;
+    public CompletableFuture<Response> executeAsync(Request originalRequest, CompiledBatchTemplate template) {
+        return executeAsync(originalRequest, template, null);
     }
 
-    private Step buildStep(List<RequestTemplate> requestTemplates, List<Object> requests, List<Object> responses, DocumentContext context, int index) {
-        RequestTemplate requestTemplate = chooseRequestTemplate(requestTemplates, context);
+    public CompletableFuture<Response> executeAsync(Request originalRequest, CompiledBatchTemplate template, LoopSink loopSink) {
+        Execution execution = new Execution(originalRequest, template, loopSink);
+        execution.submit(execution::start);
+        return execution.result;
+    }
+
+    private Step buildStep(List<CompiledRequestTemplate> requestTemplates, List<Object> requests, List<Object> responses, DocumentContext context, int index) {
+        CompiledRequestTemplate requestTemplate = chooseRequestTemplate(requestTemplates, context);
         if (requestTemplate == null)
             return null;
         return Step.of(requestTemplate, requests, responses, index);
     }
 
-    private RequestTemplate chooseRequestTemplate(List<RequestTemplate> requestTemplates, DocumentContext context) {
-        if (requestTemplates == null)
-            return null;
-        for (RequestTemplate requestTemplate : requestTemplates) {
+    private CompiledRequestTemplate chooseRequestTemplate(List<CompiledRequestTemplate> requestTemplates, DocumentContext context) {
+        for (CompiledRequestTemplate requestTemplate : requestTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(requestTemplate.getPredicate(), context), true))
                 return requestTemplate;
         }
         return null;
     }
 
-    private ResponseTemplate chooseResponseTemplate(List<ResponseTemplate> responseTemplates, DocumentContext context) {
-        if (responseTemplates == null)
-            return null;
-        for (ResponseTemplate responseTemplate : responseTemplates) {
+    private CompiledResponseTemplate chooseResponseTemplate(List<CompiledResponseTemplate> responseTemplates, DocumentContext context) {
+        for (CompiledResponseTemplate responseTemplate : responseTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(responseTemplate.getPredicate(), context), true))
                 return responseTemplate;
         }
         return null;
     }
 
-    private Request buildRequest(RequestTemplate template, DocumentContext context) {
+    private Request buildRequest(CompiledRequestTemplate template, DocumentContext context) {
         Request request = new Request();
         request.setHttpMethod(jsonBuilder.build(template.getHttpMethod(), context).toString());
         request.setUrl(jsonBuilder.build(template.getUrl(), context).toString());
-        if (template.getBody() != null)
+        if (template.getBody() != null) {
             request.setBody(jsonBuilder.build(template.getBody(), context));
+            if (jsonBuilder.isConstant(template.getBody()))
+                request.setEncodedBody(encodedBodies.computeIfAbsent(template.getBody(), schema -> jsonWriter.encode(request.getBody())));
+        }
         if (template.getHeaders() != null)
             request.setHeaders(buildHeaders((Map<String, Object>) jsonBuilder.build(template.getHeaders(), context)));
         else
@@ -201,19 +188,19 @@ public class BatchEngine {
         return request;
     }
 
-    private Response transformResponse(Response response, List<ResponseTemplate> transformers) {
-        if (transformers == null || transformers.isEmpty())
+    private Response transformResponse(Response response, List<CompiledResponseTemplate> transformers) {
+        if (transformers.isEmpty())
             return response;
 
         DocumentContext responseContext = JsonPath.using(configuration).parse(response.toMap());
-        ResponseTemplate template = chooseResponseTemplate(transformers, responseContext);
+        CompiledResponseTemplate template = chooseResponseTemplate(transformers, responseContext);
         if (template == null)
             return response;
 
         return buildResponse(template, responseContext, response.getStatus());
     }
 
-    private Response buildResponse(ResponseTemplate template, DocumentContext context, Integer defaultStatus) {
+    private Response buildResponse(CompiledResponseTemplate template, DocumentContext context, Integer defaultStatus) {
         Response response = new Response();
         if (template.getStatus() != null)
             response.setStatus(MathUtils.toInteger(jsonBuilder.build(template.getStatus(), context)));
@@ -241,12 +228,12 @@ public class BatchEngine {
         return headers;
     }
 
-    private void processVars(List<VarTemplate> varTemplates, DocumentContext context, Map<String, Object> jsonContext) {
-        if (varTemplates == null)
+    private void processVars(List<CompiledVarTemplate> varTemplates, DocumentContext context, Map<String, Object> jsonContext) {
+        if (varTemplates.isEmpty())
             return;
 
         Map<String, Object> vars = (Map<String, Object>) jsonContext.computeIfAbsent(KEY_VARS, key -> new LinkedHashMap<>());
-        for (VarTemplate varTemplate : varTemplates) {
+        for (CompiledVarTemplate varTemplate : varTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(varTemplate.getPredicate(), context), true)) {
                 Map<String, Object> map = (Map<String, Object>) jsonBuilder.build(varTemplate.getVars(), context);
                 map.forEach(vars::put);
@@ -254,12 +241,751 @@ public class BatchEngine {
         }
     }
 
+    private Object compact(Object responses) {
+        if (!(responses instanceof List))
+            return responses;
+        List<Object> result = new ArrayList<>();
+        for (Object response : (List<Object>) responses) {
+            if (!(response instanceof Map)) {
+                result.add(response);
+                continue;
+            }
+            Map<String, Object> map = (Map<String, Object>) response;
+            Map<String, Object> compactResponse = new LinkedHashMap<>();
+            if (map.containsKey(KEY_TIMES) || map.containsKey(KEY_BRANCHES)) {
+                String key = map.containsKey(KEY_TIMES) ? KEY_TIMES : KEY_BRANCHES;
+                List<Object> items = new ArrayList<>();
+                for (Object item : (List<Object>) map.get(key))
+                    items.add(compact(item));
+                compactResponse.put(key, items);
+                if (map.containsKey(KEY_ACCUMULATORS))
+                    compactResponse.put(KEY_ACCUMULATORS, map.get(KEY_ACCUMULATORS));
+            } else
+                compactResponse.put(KEY_STATUS, map.get(KEY_STATUS));
+            result.add(compactResponse);
+        }
+        return result;
+    }
+
     private boolean isLoopStep(Step step) {
         return step != null && step.requestTemplate.getLoop() != null;
     }
 
+    private boolean isParallelStep(Step step) {
+        return step != null && step.requestTemplate.getParallel() != null;
+    }
+
+    private class Execution {
+
+        private final Request originalRequest;
+        private final CompiledBatchTemplate template;
+        private final LoopSink loopSink;
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger taskCount = new AtomicInteger();
+
+        private DocumentContext context;
+        private Map<String, Object> jsonContext;
+
+        Execution(Request originalRequest, CompiledBatchTemplate template, LoopSink loopSink) {
+            this.originalRequest = originalRequest;
+            this.template = template;
+            this.loopSink = loopSink;
+        }
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (taskCount.getAndIncrement() != 0)
+                return;
+            do {
+                Runnable nextTask = tasks.poll();
+                if (!result.isDone()) {
+                    try {
+                        nextTask.run();
+                    } catch (Throwable ex) {
+                        result.completeExceptionally(ex);
+                    }
+                }
+            } while (taskCount.decrementAndGet() != 0);
+        }
+
+        void start() {
+            logger.info("Start executing batch with [{}] original request", originalRequest);
+            context = JsonPath.using(configuration).parse("{}");
+            jsonContext = context.json();
+            jsonContext.put(KEY_ORIGINAL, originalRequest.toMap());
+            jsonContext.put(KEY_REQUESTS, new ArrayList<>());
+            jsonContext.put(KEY_RESPONSES, new ArrayList<>());
+
+            Chain chain = new Chain(null, this::finish, pipelining);
+            Step step = buildStep(template.getRequests(), (List) jsonContext.get(KEY_REQUESTS), (List) jsonContext.get(KEY_RESPONSES), context, 0);
+            if (step != null)
+                chain.steps.push(step);
+            proceed(chain);
+        }
+
+        private void proceed(Chain chain) {
+            if (chain.isCancelled())
+                return;
+            chain.resume();
+            while (!chain.steps.isEmpty()) {
+                Step step = chain.steps.pop();
+
+                if (isLoopStep(step) && step.requestTemplate.getLoop().getConcurrency() > 1) {
+                    if (startConcurrentLoop(chain, step))
+                        return;
+                    if (completeStep(chain, step))
+                        return;
+                } else if (isLoopStep(step) && step.requestTemplate.getLoop().getPrefetch() > 0) {
+                    if (startPrefetchLoop(chain, step))
+                        return;
+                    if (completeStep(chain, step))
+                        return;
+                } else if (isLoopStep(step)) {
+                    CompiledLoopTemplate loopTemplate = step.requestTemplate.getLoop();
+                    if (step.settledTime < step.loopTime) {
+                        step.settledTime = step.loopTime;
+                        settleLoopTime(step, step.loopTime - 1, step.loopRequest.get(KEY_COUNTER));
+                    }
+                    if (isStreamed(loopTemplate) && step.streamedTime < step.loopTime) {
+                        step.streamedTime = step.loopTime;
+                        chain.steps.push(step);
+                        stream(step, step.loopTime - 1, step.loopRequest.get(KEY_COUNTER)).whenComplete((v, ex) -> submit(() -> {
+                            if (ex != null)
+                                fail(ex);
+                            else
+                                proceed(chain);
+                        }));
+                        return;
+                    }
+                    logger.info("Start loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
+                    if (step.loopTime == 0) {
+                        initLoop(step);
+                    } else {
+                        Object counter = jsonBuilder.build(loopTemplate.getCounterUpdate(), context);
+                        step.loopRequest.put(KEY_COUNTER, counter);
+                    }
+
+                    if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
+                        logger.warn("Loop request with [{}] index exceed max loop time", step.index);
+                    } else {
+                        boolean shouldLoop = MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true);
+                        if (shouldLoop) {
+                            Step nextStep = buildStep(loopTemplate.getRequests(), new ArrayList<>(), new ArrayList<>(), context, 0);
+                            if (nextStep != null) {
+                                ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(nextStep.requests);
+                                ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(nextStep.responses);
+                                chain.steps.push(step);
+                                chain.steps.push(nextStep);
+                                step.loopTime++;
+                                continue;
+                            }
+                        }
+                    }
+
+                    if (completeStep(chain, step))
+                        return;
+                } else if (isParallelStep(step)) {
+                    if (startParallel(chain, step))
+                        return;
+                    if (completeStep(chain, step))
+                        return;
+                } else {
+                    dispatchStep(chain, step);
+                    return;
+                }
+            }
+            chain.onDone.run();
+        }
+
+        private void dispatchStep(Chain chain, Step step) {
+            logger.info("Start executing request with [{}] index", step.index);
+            PendingRequest pendingRequest = new PendingRequest(step, buildRequest(step.requestTemplate, context));
+            chain.pendingRequests.add(pendingRequest);
+            dispatch(pendingRequest.request, step.requestTemplate).whenComplete((response, ex) -> submit(() -> {
+                pendingRequest.response = response;
+                pendingRequest.error = ex;
+                pendingRequest.done = true;
+                settle(chain);
+            }));
+            if (chain.pipelining)
+                pipeline(chain, pendingRequest);
+        }
+
+        private void pipeline(Chain chain, PendingRequest pendingRequest) {
+            CompiledRequestTemplate requestTemplate = pendingRequest.step.requestTemplate;
+            if (!requestTemplate.getResponses().isEmpty())
+                return;
+
+            int settledCount = chain.pendingRequests.peek().step.index;
+            Set<String> pendingVars = new HashSet<>();
+            for (PendingRequest request : chain.pendingRequests) {
+                if (request.step.requestTemplate.getVarNames() == null) {
+                    pendingVars = null;
+                    break;
+                }
+                pendingVars.addAll(request.step.requestTemplate.getVarNames());
+            }
+            for (CompiledRequestTemplate nextTemplate : requestTemplate.getRequests()) {
+                if (!nextTemplate.getPredicateDependencies().isReady(settledCount, pendingVars))
+                    return;
+            }
+
+            CompiledRequestTemplate nextTemplate = chooseRequestTemplate(requestTemplate.getRequests(), context);
+            if (nextTemplate == null || nextTemplate.getLoop() != null || nextTemplate.getParallel() != null
+                    || !nextTemplate.getDependencies().isReady(settledCount, pendingVars))
+                return;
+
+            Step step = pendingRequest.step;
+            logger.info("Pipeline request with [{}] index", step.index + 1);
+            pendingRequest.pipelined = true;
+            dispatchStep(chain, Step.of(nextTemplate, step.requests, step.responses, step.index + 1));
+        }
+
+        private void settle(Chain chain) {
+            if (chain.isCancelled())
+                return;
+            chain.resume();
+            while (!chain.pendingRequests.isEmpty() && chain.pendingRequests.peek().done) {
+                PendingRequest pendingRequest = chain.pendingRequests.poll();
+                if (pendingRequest.error != null) {
+                    fail(pendingRequest.error);
+                    return;
+                }
+                Step step = pendingRequest.step;
+                logger.info("Done executing request with [{}] index", step.index);
+
+                Response transformedResponse = transformResponse(pendingRequest.response, step.requestTemplate.getTransformers());
+                CompiledRetentionOptions retention = retentionOf(step.requestTemplate);
+                step.requests.add(retain(retention, pendingRequest.request.toMap()));
+                step.responses.add(prune(retain(retention, transformedResponse.toMap()), retention));
+
+                if (pendingRequest.pipelined) {
+                    processVars(step.requestTemplate.getVars(), context, jsonContext);
+                    continue;
+                }
+                if (!completeStep(chain, step))
+                    proceed(chain);
+                return;
+            }
+        }
+
+        private boolean startParallel(Chain chain, Step step) {
+            CompiledParallelTemplate parallelTemplate = step.requestTemplate.getParallel();
+            logger.info("Start parallel requests with [{}] index", step.index);
+            List<Object> branchRequests = new ArrayList<>();
+            List<Object> branchResponses = new ArrayList<>();
+            Map<String, Object> parallelRequest = new HashMap<>();
+            parallelRequest.put(KEY_BRANCHES, branchRequests);
+            step.requests.add(parallelRequest);
+            Map<String, Object> parallelResponse = new HashMap<>();
+            parallelResponse.put(KEY_BRANCHES, branchResponses);
+            step.responses.add(parallelResponse);
+
+            Deque<Step> branchSteps = new ArrayDeque<>();
+            for (CompiledRequestTemplate branchTemplate : parallelTemplate.getRequests()) {
+                List<Object> requests = new ArrayList<>();
+                List<Object> responses = new ArrayList<>();
+                branchRequests.add(requests);
+                branchResponses.add(responses);
+                Step branchStep = buildStep(Collections.singletonList(branchTemplate), requests, responses, context, 0);
+                if (branchStep != null)
+                    branchSteps.add(branchStep);
+            }
+            if (branchSteps.isEmpty()) {
+                logger.info("Done parallel requests with [{}] index", step.index);
+                return false;
+            }
+
+            int maxConcurrency = parallelTemplate.getMaxConcurrency() > 0 ? parallelTemplate.getMaxConcurrency() : branchSteps.size();
+            ParallelGroup group = new ParallelGroup(chain, step, branchSteps);
+            for (int i = 0; i < maxConcurrency && !branchSteps.isEmpty(); i++)
+                startBranch(group);
+            return true;
+        }
+
+        private boolean startConcurrentLoop(Chain chain, Step step) {
+            CompiledLoopTemplate loopTemplate = step.requestTemplate.getLoop();
+            logger.info("Start concurrent loop request with [{}] index and [{}] concurrency", step.index, loopTemplate.getConcurrency());
+            initLoop(step);
+
+            Deque<Step> iterationSteps = new ArrayDeque<>();
+            List<Object> counters = new ArrayList<>();
+            while (true) {
+                if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
+                    logger.warn("Loop request with [{}] index exceed max loop time", step.index);
+                    break;
+                }
+                if (!MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true))
+                    break;
+                Step iterationStep = buildStep(loopTemplate.getRequests(), new ArrayList<>(), new ArrayList<>(), context, 0);
+                if (iterationStep == null)
+                    break;
+                iterationStep.counter = step.loopRequest.get(KEY_COUNTER);
+                counters.add(iterationStep.counter);
+                ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(iterationStep.requests);
+                ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(iterationStep.responses);
+                iterationSteps.add(iterationStep);
+                step.loopTime++;
+                step.loopRequest.put(KEY_COUNTER, jsonBuilder.build(loopTemplate.getCounterUpdate(), context));
+            }
+            if (iterationSteps.isEmpty()) {
+                logger.info("Done concurrent loop request with [{}] index", step.index);
+                return false;
+            }
+
+            ParallelGroup group = new ParallelGroup(chain, step, iterationSteps);
+            group.counter = step.loopRequest.get(KEY_COUNTER);
+            group.counters = counters;
+            for (int i = 0; i < loopTemplate.getConcurrency() && !iterationSteps.isEmpty(); i++)
+                startBranch(group);
+            return true;
+        }
+
+        private void initLoop(Step step) {
+            step.loopRequest = new HashMap<>();
+            step.loopRequest.put(KEY_COUNTER, jsonBuilder.build(step.requestTemplate.getLoop().getCounterInit(), context));
+            step.loopRequest.put(KEY_TIMES, new ArrayList<>());
+            step.requests.add(step.loopRequest);
+
+            step.loopResponse = new HashMap<>();
+            step.loopResponse.put(KEY_TIMES, new ArrayList<>());
+            step.responses.add(step.loopResponse);
+
+            List<CompiledAccumulatorTemplate> accumulatorTemplates = step.requestTemplate.getLoop().getAccumulators();
+            if (!accumulatorTemplates.isEmpty()) {
+                Map<String, Object> accumulators = new LinkedHashMap<>();
+                accumulatorTemplates.forEach(accumulatorTemplate -> accumulators.put(accumulatorTemplate.getName(), Accumulators.init(accumulatorTemplate.getOperation())));
+                step.loopResponse.put(KEY_ACCUMULATORS, accumulators);
+            }
+        }
+
+        private boolean startPrefetchLoop(Chain chain, Step step) {
+            logger.info("Start prefetch loop request with [{}] index and [{}] prefetch", step.index, step.requestTemplate.getLoop().getPrefetch());
+            initLoop(step);
+            return advance(new PrefetchLoop(chain, step));
+        }
+
+        private boolean advance(PrefetchLoop loop) {
+            Step step = loop.step;
+            CompiledLoopTemplate loopTemplate = step.requestTemplate.getLoop();
+            loop.chain.resume();
+            while (true) {
+                LoopTime head = loop.loopTimes.peek();
+                if (head != null && head.confirmed) {
+                    if (!head.done)
+                        return true;
+                    if (!head.settled) {
+                        head.settled = true;
+                        settleLoopTime(step, step.loopTime - 1, head.counter);
+                    }
+                    if (isStreamed(loopTemplate) && !head.streamed) {
+                        head.streamed = true;
+                        stream(step, step.loopTime - 1, head.counter).whenComplete((v, ex) -> submit(() -> {
+                            if (ex != null)
+                                fail(ex);
+                            else if (!advance(loop) && !completeStep(loop.chain, step))
+                                proceed(loop.chain);
+                        }));
+                        return true;
+                    }
+                    loop.loopTimes.poll();
+                    step.loopRequest.put(KEY_COUNTER, head.counter);
+                    step.loopRequest.put(KEY_COUNTER, jsonBuilder.build(loopTemplate.getCounterUpdate(), context));
+                }
+
+                logger.info("Start loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
+                if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
+                    logger.warn("Loop request with [{}] index exceed max loop time", step.index);
+                    break;
+                }
+                if (!MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true))
+                    break;
+
+                Object counter = step.loopRequest.get(KEY_COUNTER);
+                LoopTime loopTime = loop.loopTimes.peek();
+                if (loopTime != null && !Objects.equals(loopTime.counter, counter)) {
+                    logger.info("Prefetched counter [{}] of loop request with [{}] index doesn't match [{}]", loopTime.counter, step.index, counter);
+                    discard(loop);
+                    loopTime = null;
+                }
+                if (loopTime == null)
+                    loopTime = prefetch(loop, counter);
+                if (loopTime.chain == null)
+                    break;
+
+                ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(loopTime.requests);
+                ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(loopTime.responses);
+                step.loopTime++;
+                confirm(loopTime);
+                prefetchAhead(loop);
+            }
+
+            Object counter = step.loopRequest.get(KEY_COUNTER);
+            discard(loop);
+            step.loopRequest.put(KEY_COUNTER, counter);
+            logger.info("Done prefetch loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
+            return false;
+        }
+
+        private void prefetchAhead(PrefetchLoop loop) {
+            Step step = loop.step;
+            CompiledLoopTemplate loopTemplate = step.requestTemplate.getLoop();
+            List<Object> times = (List<Object>) step.loopRequest.get(KEY_TIMES);
+            List<Object> responseTimes = (List<Object>) step.loopResponse.get(KEY_TIMES);
+            Object counter = step.loopRequest.get(KEY_COUNTER);
+            int size = times.size();
+
+            Iterator<LoopTime> iterator = loop.loopTimes.iterator();
+            iterator.next();
+            while (iterator.hasNext()) {
+                LoopTime loopTime = iterator.next();
+                times.add(loopTime.requests);
+                responseTimes.add(loopTime.responses);
+            }
+            while (loop.loopTimes.size() <= loopTemplate.getPrefetch()
+                    && times.size() < template.getLoopOptions().getMaxLoopTime()) {
+                step.loopRequest.put(KEY_COUNTER, loop.loopTimes.peekLast().counter);
+                LoopTime loopTime = prefetch(loop, jsonBuilder.build(loopTemplate.getCounterUpdate(), context));
+                logger.info("Prefetch loop request with [{}] index and [{}] counter", step.index, loopTime.counter);
+                times.add(loopTime.requests);
+                responseTimes.add(loopTime.responses);
+            }
+
+            times.subList(size, times.size()).clear();
+            responseTimes.subList(size, responseTimes.size()).clear();
+            step.loopRequest.put(KEY_COUNTER, counter);
+        }
+
+        private LoopTime prefetch(PrefetchLoop loop, Object counter) {
+            Step step = loop.step;
+            LoopTime loopTime = new LoopTime(counter);
+            step.loopRequest.put(KEY_COUNTER, counter);
+            Step nextStep = buildStep(step.requestTemplate.getLoop().getRequests(), loopTime.requests, loopTime.responses, context, 0);
+            if (nextStep != null) {
+                loopTime.chain = new Chain(loop.chain, () -> {
+                    loopTime.done = true;
+                    if (loopTime.confirmed && !advance(loop) && !completeStep(loop.chain, step))
+                        proceed(loop.chain);
+                }, false);
+                loopTime.chain.speculative = true;
+                loopTime.chain.loopRequest = step.loopRequest;
+                loopTime.chain.counter = counter;
+                loopTime.chain.steps.push(nextStep);
+                submit(() -> proceed(loopTime.chain));
+            }
+            loop.loopTimes.add(loopTime);
+            return loopTime;
+        }
+
+        private void confirm(LoopTime loopTime) {
+            loopTime.confirmed = true;
+            loopTime.chain.speculative = false;
+            for (Chain parkedChain : loopTime.chain.parkedChains)
+                submit(() -> unpark(parkedChain));
+            loopTime.chain.parkedChains.clear();
+        }
+
+        private void unpark(Chain chain) {
+            if (chain.isCancelled())
+                return;
+            Step step = chain.parkedStep;
+            chain.parkedStep = null;
+            chain.resume();
+            if (!completeStep(chain, step))
+                proceed(chain);
+        }
+
+        private void discard(PrefetchLoop loop) {
+            int wasted = 0;
+            for (LoopTime loopTime : loop.loopTimes) {
+                if (loopTime.chain != null) {
+                    loopTime.chain.cancelled = true;
+                    wasted++;
+                }
+            }
+            if (wasted > 0)
+                logger.info("Discard [{}] prefetched loop times of loop request with [{}] index", wasted, loop.step.index);
+            loop.loopTimes.clear();
+        }
+
+        private void settleLoopTime(Step step, int loopTime, Object counter) {
+            CompiledLoopTemplate loopTemplate = step.requestTemplate.getLoop();
+            List<Object> times = (List<Object>) step.loopRequest.get(KEY_TIMES);
+            List<Object> responseTimes = (List<Object>) step.loopResponse.get(KEY_TIMES);
+            if (!loopTemplate.getAccumulators().isEmpty()) {
+                Map<String, Object> loopTimeContext = new HashMap<>();
+                loopTimeContext.put(KEY_COUNTER, counter);
+                loopTimeContext.put(KEY_REQUESTS, times.get(loopTime));
+                loopTimeContext.put(KEY_RESPONSES, responseTimes.get(loopTime));
+                Map<String, Object> accumulators = (Map<String, Object>) step.loopResponse.get(KEY_ACCUMULATORS);
+                for (CompiledAccumulatorTemplate accumulatorTemplate : loopTemplate.getAccumulators()) {
+                    Object value = jsonBuilder.build(accumulatorTemplate.getValue(), context, loopTimeContext);
+                    accumulators.put(accumulatorTemplate.getName(), Accumulators.accumulate(accumulatorTemplate.getOperation(), accumulators.get(accumulatorTemplate.getName()), value));
+                }
+            }
+            if (loopTime > 0 && (!loopTemplate.isRetainTimes() || isStreamed(loopTemplate))) {
+                times.set(loopTime - 1, null);
+                responseTimes.set(loopTime - 1, null);
+            }
+        }
+
+        private boolean isStreamed(CompiledLoopTemplate loopTemplate) {
+            return loopSink != null && loopTemplate.getStream() != null;
+        }
+
+        private CompletableFuture<Void> stream(Step step, int loopTime, Object counter) {
+            List<Object> times = (List<Object>) step.loopRequest.get(KEY_TIMES);
+            List<Object> responseTimes = (List<Object>) step.loopResponse.get(KEY_TIMES);
+            logger.info("Stream loop time [{}] of loop request with [{}] index to [{}] stream", loopTime, step.index, step.requestTemplate.getLoop().getStream());
+            try {
+                return loopSink.accept(step.requestTemplate.getLoop().getStream(), counter, (List<Object>) times.get(loopTime), (List<Object>) responseTimes.get(loopTime));
+            } catch (RuntimeException ex) {
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+                return future;
+            }
+        }
+
+        private void startBranch(ParallelGroup group) {
+            Step branchStep = group.waitingSteps.poll();
+            Chain branchChain = new Chain(group.chain, () -> {
+                if (group.chain.isCancelled())
+                    return;
+                group.remaining--;
+                if (!group.waitingSteps.isEmpty())
+                    startBranch(group);
+                else if (group.remaining == 0) {
+                    group.chain.resume();
+                    if (isLoopStep(group.step)) {
+                        logger.info("Done concurrent loop request with [{}] index and [{}] loop time", group.step.index, group.step.loopTime);
+                        for (int i = 0; i < group.counters.size(); i++)
+                            settleLoopTime(group.step, i, group.counters.get(i));
+                        group.step.loopRequest.put(KEY_COUNTER, group.counter);
+                    } else
+                        logger.info("Done parallel requests with [{}] index", group.step.index);
+                    if (!completeStep(group.chain, group.step))
+                        proceed(group.chain);
+                }
+            }, false);
+            if (isLoopStep(group.step)) {
+                branchChain.loopRequest = group.step.loopRequest;
+                branchChain.counter = branchStep.counter;
+            }
+            branchChain.steps.push(branchStep);
+            submit(() -> proceed(branchChain));
+        }
+
+        private void finish() {
+            Response response;
+            CompiledResponseTemplate responseTemplate = chooseResponseTemplate(template.getResponses(), context);
+            if (responseTemplate != null) {
+                logger.info("Found final response");
+                response = buildResponse(responseTemplate, context, 200);
+            } else {
+                response = new Response();
+                response.setStatus(200);
+                if (template.getRetentionOptions().isCompactResult()) {
+                    logger.info("Not found final response. Return compact batch responses");
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put(KEY_RESPONSES, compact(jsonContext.get(KEY_RESPONSES)));
+                    response.setBody(body);
+                } else {
+                    logger.info("Not found final response. Return all batch responses");
+                    response.setBody(jsonContext);
+                }
+            }
+            complete(response);
+        }
+
+        private boolean completeStep(Chain chain, Step step) {
+            Chain speculativeChain = chain.speculativeChain();
+            if (speculativeChain != null) {
+                logger.info("Park request with [{}] index until its prefetched loop time is confirmed", step.index);
+                chain.parkedStep = step;
+                speculativeChain.parkedChains.add(chain);
+                return true;
+            }
+
+            processVars(step.requestTemplate.getVars(), context, jsonContext);
+
+            CompiledResponseTemplate responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
+            if (responseTemplate != null) {
+                logger.info("Found break response");
+                complete(buildResponse(responseTemplate, context, 200));
+                return true;
+            }
+
+            Step nextStep = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, context, step.index + 1);
+            if (nextStep != null)
+                chain.steps.push(nextStep);
+            return false;
+        }
+
+        private CompletableFuture<Response> dispatch(Request request, CompiledRequestTemplate requestTemplate) {
+            try {
+                return requestDispatcher.dispatch(request, configuration.jsonProvider(), dispatchOptionsOf(requestTemplate));
+            } catch (RuntimeException ex) {
+                CompletableFuture<Response> future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+                return future;
+            }
+        }
+
+        private DispatchOptions dispatchOptionsOf(CompiledRequestTemplate requestTemplate) {
+            if (!requestTemplate.getTransformers().isEmpty())
+                return template.getDispatchOptions();
+            switch (retentionOf(requestTemplate).getPolicy()) {
+                case NONE:
+                case HEADERS:
+                    return template.getDiscardingDispatchOptions();
+                case ALL:
+                    return pruning && template.getProjectedDispatchOptions() != null ? template.getProjectedDispatchOptions() : template.getDispatchOptions();
+                default:
+                    return template.getDispatchOptions();
+            }
+        }
+
+        private CompiledRetentionOptions retentionOf(CompiledRequestTemplate requestTemplate) {
+            return requestTemplate.getRetention() != null ? requestTemplate.getRetention() : template.getRetentionOptions();
+        }
+
+        // the same policy and paths apply to the stored request and to the stored response
+        private Map<String, Object> retain(CompiledRetentionOptions retention, Map<String, Object> map) {
+            switch (retention.getPolicy()) {
+                case NONE:
+                    Map<String, Object> status = new LinkedHashMap<>();
+                    if (map.get(KEY_STATUS) != null)
+                        status.put(KEY_STATUS, map.get(KEY_STATUS));
+                    return status;
+                case HEADERS:
+                    map.remove(KEY_BODY);
+                    return map;
+                case PATHS:
+                    Map<String, Object> result = (Map<String, Object>) jsonPruner.prune(map, retention.getPaths());
+                    return result == null ? new LinkedHashMap<>() : result;
+                default:
+                    return map;
+            }
+        }
+
+        private Map<String, Object> prune(Map<String, Object> map, CompiledRetentionOptions retention) {
+            if (map == null || !pruning || retention.getPolicy() != CompiledRetentionOptions.Policy.ALL || template.getResponsePaths() == null)
+                return map;
+            Map<String, Object> result = (Map<String, Object>) jsonPruner.prune(map, template.getResponsePaths());
+            return result == null ? new LinkedHashMap<>() : result;
+        }
+
+        private void fail(Throwable ex) {
+            result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+        }
+
+        private void complete(Response response) {
+            logger.info("Done executing batch with [{}] original request", originalRequest);
+            result.complete(response);
+        }
+
+    }
+
+    private static class Chain {
+        final Chain parent;
+        final Deque<Step> steps = new ArrayDeque<>();
+        final Deque<PendingRequest> pendingRequests = new ArrayDeque<>();
+        final List<Chain> parkedChains = new ArrayList<>();
+        final Runnable onDone;
+        final boolean pipelining;
+
+        Map<String, Object> loopRequest;
+        Object counter;
+        boolean cancelled;
+        boolean speculative;
+        Step parkedStep;
+
+        Chain(Chain parent, Runnable onDone, boolean pipelining) {
+            this.parent = parent;
+            this.onDone = onDone;
+            this.pipelining = pipelining;
+        }
+
+        boolean isCancelled() {
+            return cancelled || parent != null && parent.isCancelled();
+        }
+
+        Chain speculativeChain() {
+            for (Chain chain = this; chain != null; chain = chain.parent) {
+                if (chain.speculative)
+                    return chain;
+            }
+            return null;
+        }
+
+        void resume() {
+            if (parent != null)
+                parent.resume();
+            if (loopRequest != null)
+                loopRequest.put(KEY_COUNTER, counter);
+        }
+    }
+
+    private static class PendingRequest {
+        final Step step;
+        final Request request;
+        Response response;
+        Throwable error;
+        boolean done;
+        boolean pipelined;
+
+        PendingRequest(Step step, Request request) {
+            this.step = step;
+            this.request = request;
+        }
+    }
+
+    private static class PrefetchLoop {
+        final Chain chain;
+        final Step step;
+        final Deque<LoopTime> loopTimes = new ArrayDeque<>();
+
+        PrefetchLoop(Chain chain, Step step) {
+            this.chain = chain;
+            this.step = step;
+        }
+    }
+
+    private static class LoopTime {
+        final Object counter;
+        final List<Object> requests = new ArrayList<>();
+        final List<Object> responses = new ArrayList<>();
+        Chain chain;
+        boolean confirmed;
+        boolean done;
+        boolean settled;
+        boolean streamed;
+
+        LoopTime(Object counter) {
+            this.counter = counter;
+        }
+    }
+
+    private static class ParallelGroup {
+        final Chain chain;
+        final Step step;
+        final Deque<Step> waitingSteps;
+        int remaining;
+        Object counter;
+        List<Object> counters;
+
+        ParallelGroup(Chain chain, Step step, Deque<Step> waitingSteps) {
+            this.chain = chain;
+            this.step = step;
+            this.waitingSteps = waitingSteps;
+            this.remaining = waitingSteps.size();
+        }
+    }
+
     private static class Step {
-        RequestTemplate requestTemplate;
+        CompiledRequestTemplate requestTemplate;
         List<Object> requests;
         List<Object> responses;
         int index;
@@ -267,15 +993,18 @@ public class BatchEngine {
         Map<String, Object> loopRequest;
         Map<String, Object> loopResponse;
         int loopTime = 0;
+        int settledTime = 0;
+        int streamedTime = 0;
+        Object counter;
 
-        Step(RequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
+        Step(CompiledRequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
             this.requestTemplate = requestTemplate;
             this.requests = requests;
             this.responses = responses;
             this.index = index;
         }
 
-        private static Step of(RequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
+        private static Step of(CompiledRequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
             return new Step(requestTemplate, requests, responses, index);
         }
 
@@ -0,0 +1,47 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class BlockingRequestDispatcherAdapter implements AsyncRequestDispatcher {
+
+    private RequestDispatcher requestDispatcher;
+    private Executor executor;
+
+    public BlockingRequestDispatcherAdapter(RequestDispatcher requestDispatcher) {
+        this(requestDispatcher, null);
+    }
+
+    public BlockingRequestDispatcherAdapter(RequestDispatcher requestDispatcher, Executor executor) {
+        this.requestDispatcher = requestDispatcher;
+        this.executor = executor;
+    }
+
+    public RequestDispatcher getRequestDispatcher() {
+        return requestDispatcher;
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        if (executor == null)
+            dispatch(request, jsonProvider, options, future);
+        else
+            executor.execute(() -> dispatch(request, jsonProvider, options, future));
+        return future;
+    }
+
+    private void dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, CompletableFuture<Response> future) {
+        try {
+            future.complete(requestDispatcher.dispatch(request, jsonProvider, options));
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+
+}
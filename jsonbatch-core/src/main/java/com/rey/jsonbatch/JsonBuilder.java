@@ -1,26 +1,45 @@
 package com.rey.jsonbatch;
 
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.compiler.FunctionSchema;
+import com.rey.jsonbatch.compiler.InlineString;
+import com.rey.jsonbatch.compiler.JsonPathSchema;
+import com.rey.jsonbatch.compiler.JsonPathTemplate;
+import com.rey.jsonbatch.compiler.ListSchema;
+import com.rey.jsonbatch.compiler.ObjectSchema;
+import com.rey.jsonbatch.compiler.RawSchema;
+import com.rey.jsonbatch.compiler.Schema;
+import com.rey.jsonbatch.compiler.ValueSchema;
 import com.rey.jsonbatch.function.Function;
 import com.rey.jsonbatch.function.MathUtils;
+import com.rey.jsonbatch.parser.FunctionNode;
+import com.rey.jsonbatch.parser.JsonPathNode;
+import com.rey.jsonbatch.parser.LiteralNode;
+import com.rey.jsonbatch.parser.Node;
 import com.rey.jsonbatch.parser.Parser;
-import com.rey.jsonbatch.parser.Token;
-import com.rey.jsonbatch.parser.TokenValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
 public class JsonBuilder {
@@ -28,6 +47,8 @@ public class JsonBuilder {
     private Logger logger = LoggerFactory.getLogger(JsonBuilder.class);
 
     private static final Pattern PATTERN_NUMERIC = Pattern.compile("^[0123456789.]*$");
+    private static final Pattern PATTERN_INDEX = Pattern.compile("^-?\\d{1,9}$");
+    private static final Pattern PATTERN_PROPERTY = Pattern.compile("^[\\w\\-]+$");
 
     private static final String KEY_ARRAY_SCHEMA = "__array_schema";
     private static final String KEY_OBJECT_SCHEMA = "__object_schema";
@@ -36,120 +57,454 @@ public class JsonBuilder {
 
     private Parser parser = new Parser();
 
+    private JsonPathCache jsonPathCache;
+
+    private int parallelThreshold = 0;
+
+    private Executor executor;
+
     public JsonBuilder(Function... functions) {
+        this(new JsonPathCache(), functions);
+    }
+
+    public JsonBuilder(JsonPathCache jsonPathCache, Function... functions) {
+        this.jsonPathCache = jsonPathCache;
         for (Function f : functions)
             functionMap.put(f.getName(), f);
     }
 
-    public Object build(Object schema, DocumentContext context) {
-        return build(schema, context, context);
+    public JsonPathCache getJsonPathCache() {
+        return jsonPathCache;
     }
 
-    private Object build(Object schema, DocumentContext context, DocumentContext rootContext) {
-        logger.info("Build schema: {}", schema);
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Schema compile(Object schema) {
+        if (schema instanceof Schema)
+            return (Schema) schema;
         if (schema instanceof String)
-            return buildNode((String) schema, context, rootContext);
+            return compileNode((String) schema);
         if (schema instanceof Map)
-            return buildObject((Map) schema, context, rootContext);
+            return compileObject((Map) schema);
         if (schema instanceof Collection)
-            return buildList((Collection) schema, context, rootContext);
-        return schema;
+            return compileList((Collection) schema);
+        return ValueSchema.of(schema);
+    }
+
+    public Object build(Object schema, DocumentContext context) {
+        return build(compile(schema), context);
+    }
+
+    public Object build(Schema schema, DocumentContext context) {
+        return copyIfFolded(schema, build(schema, ScopedContext.of(context)));
+    }
+
+    Object build(Schema schema, DocumentContext context, Object scope) {
+        return copyIfFolded(schema, build(schema, ScopedContext.of(context).scope(scope)));
+    }
+
+    // folded constants are shared read-only only as children, a whole built body is always the caller's own
+    private Object copyIfFolded(Schema schema, Object value) {
+        if (schema instanceof ValueSchema && (value instanceof Map || value instanceof List))
+            return copyConstant(value);
+        return value;
+    }
+
+    private Object copyConstant(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            ((Map<String, Object>) value).forEach((key, child) -> result.put(key, copyConstant(child)));
+            return result;
+        }
+        if (value instanceof List) {
+            List<Object> result = new ArrayList<>(((List<Object>) value).size());
+            for (Object child : (List<Object>) value)
+                result.add(copyConstant(child));
+            return result;
+        }
+        return value;
     }
 
-    private Object buildNode(String schema, DocumentContext context, DocumentContext rootContext) {
+    private Schema compileNode(String schema) {
         Type type = null;
-        List<TokenValue> tokenValues = null;
+        Node node = null;
         for (Type t : Type.values()) {
             for (String value : t.values) {
                 if (schema.startsWith(value)) {
                     type = t;
-                    tokenValues = parser.parse(schema.substring(value.length()).trim());
+                    node = parser.parse(schema.substring(value.length()).trim());
                     break;
                 }
             }
         }
         if (type == null)
-            tokenValues = parser.parse(schema.trim());
+            node = parser.parse(schema.trim());
 
-        TokenValue firstToken = tokenValues.get(0);
-        if (firstToken.getToken() == Token.JSON_PATH)
-            return buildNodeFromJsonPath(type, context, rootContext, firstToken.getValue());
-        else if (firstToken.getToken() == Token.FUNC)
-            return buildNodeFromFunction(type, tokenValues, context, rootContext);
-        else
-            return buildStringFromRawData(firstToken.getValue(), context, rootContext);
+        if (node instanceof JsonPathNode)
+            return compileJsonPath(schema, type, ((JsonPathNode) node).getPath());
+        if (node instanceof FunctionNode)
+            return compileFunction(schema, type, (FunctionNode) node);
+        return RawSchema.of(schema, compileInlineString(((LiteralNode) node).getValue()));
     }
 
-    private Map buildObject(Map<String, Object> schema, DocumentContext context, DocumentContext rootContext) {
-        Map<String, Object> result = new LinkedHashMap<>();
+    private FunctionSchema compileFunction(Object source, Type type, FunctionNode node) {
+        Function function = functionMap.get(node.getName());
+        if (function == null) {
+            logger.error("Unsupported function: {}", node.getName());
+            throw new IllegalArgumentException("Not support function: " + node.getName());
+        }
+        List<Schema> arguments = new ArrayList<>(node.getArguments().size());
+        for (Node argument : node.getArguments()) {
+            if (argument instanceof JsonPathNode)
+                arguments.add(compileJsonPath(argument, null, ((JsonPathNode) argument).getPath()));
+            else if (argument instanceof FunctionNode)
+                arguments.add(compileFunction(argument, null, (FunctionNode) argument));
+            else
+                arguments.add(compileRawData(argument, ((LiteralNode) argument).getValue()));
+        }
+        return FunctionSchema.of(source, type, function, arguments);
+    }
 
-        if(schema.containsKey(KEY_OBJECT_SCHEMA)) {
-            logger.trace("Found object schema. Switching context");
-            Object object = toSingleObject(build(schema.get(KEY_OBJECT_SCHEMA), context, rootContext));
-            context = JsonPath.using(context.configuration()).parse(object);
+    private Schema compileRawData(Object source, String rawData) {
+        if (PATTERN_NUMERIC.matcher(rawData).matches()) {
+            if (rawData.contains(".")) {
+                try {
+                    return ValueSchema.of(new BigDecimal(rawData));
+                } catch (NumberFormatException ex) {
+                    logger.trace("Cannot parse [{}] as decimal", rawData);
+                }
+            } else {
+                try {
+                    return ValueSchema.of(new BigInteger(rawData));
+                } catch (NumberFormatException ex) {
+                    logger.trace("Cannot parse [{}] as integer", rawData);
+                }
+            }
+        }
+        if (rawData.equalsIgnoreCase("true") || rawData.equalsIgnoreCase("false")) {
+            return ValueSchema.of(rawData.equalsIgnoreCase("true"));
         }
+        return RawSchema.of(source, compileInlineString(rawData));
+    }
 
-        for(String key : schema.keySet()) {
-            if (isValidKey(key)) {
-                Object value = schema.get(key);
-                String actualKey = key;
+    private JsonPathSchema compileJsonPath(Object source, Type type, String path) {
+        if (!hasInlineVariable(path)) {
+            JsonPath compiledPath = null;
+            try {
+                compiledPath = jsonPathCache.get(path.startsWith("$$") ? path.substring(1) : path);
+            } catch (InvalidPathException ex) {
+                logger.warn("Cannot compile [{}] jsonPath: {}", path, ex.getMessage());
+            }
+            return JsonPathSchema.of(source, type, path, compiledPath, null, null);
+        }
+        InlineString inlinePath = compileInlineString(path);
+        return JsonPathSchema.of(source, type, path, null, inlinePath, compileJsonPathTemplate(inlinePath));
+    }
+
+    private JsonPathTemplate compileJsonPathTemplate(InlineString path) {
+        List<Object> segments = path.getSegments();
+        if (segments.size() < 2)
+            return null;
+        for (int i = 0; i < segments.size(); i++) {
+            if ((segments.get(i) instanceof String) != (i % 2 == 0))
+                return null;
+        }
 
-                if(hasInlineVariable(key)) {
-                    logger.trace("Found inline variable in [{}] key", key);
-                    actualKey = buildStringFromRawData(key, context, rootContext);
+        String literal = (String) segments.get(0);
+        boolean root = literal.startsWith("$$");
+        if (root)
+            literal = literal.substring(1);
+        List<JsonPathTemplate.Hole> holes = new ArrayList<>();
+        try {
+            for (int i = 1; i < segments.size(); i += 2) {
+                JsonPathTemplate.Kind kind;
+                String closing;
+                if (literal.endsWith("['") || literal.endsWith("[\"")) {
+                    kind = JsonPathTemplate.Kind.BRACKET_PROPERTY;
+                    closing = literal.charAt(literal.length() - 1) + "]";
+                } else if (literal.endsWith("[")) {
+                    kind = JsonPathTemplate.Kind.INDEX;
+                    closing = "]";
+                } else if (literal.endsWith(".") && !literal.endsWith("..")) {
+                    kind = JsonPathTemplate.Kind.DOT_PROPERTY;
+                    closing = "";
+                } else
+                    return null;
+
+                String body = literal.substring(0, literal.length() - Math.max(closing.length(), 1));
+                JsonPath holePath = null;
+                if (holes.isEmpty() || !body.isEmpty()) {
+                    holePath = jsonPathCache.get(holes.isEmpty() ? body : "$" + body);
+                    if (!holePath.isDefinite())
+                        return null;
                 }
+                holes.add(JsonPathTemplate.Hole.of(holePath, kind, (Schema) segments.get(i)));
+
+                literal = i + 1 < segments.size() ? (String) segments.get(i + 1) : "";
+                if (!literal.startsWith(closing))
+                    return null;
+                literal = literal.substring(closing.length());
+                if (kind == JsonPathTemplate.Kind.DOT_PROPERTY && !literal.isEmpty() && !literal.startsWith(".") && !literal.startsWith("["))
+                    return null;
+            }
+            return JsonPathTemplate.of(root, holes, literal.isEmpty() ? null : jsonPathCache.get("$" + literal));
+        } catch (InvalidPathException ex) {
+            logger.trace("Cannot compile [{}] jsonPath with holes", path);
+            return null;
+        }
+    }
 
-                logger.info("Build for [{}] key with schema: {}", actualKey, value);
-                if (value instanceof String)
-                    result.put(actualKey, buildNode((String) value, context, rootContext));
-                else if (value instanceof Map)
-                    result.put(actualKey, buildObject((Map) value, context, rootContext));
-                else if (value instanceof Collection)
-                    result.put(actualKey, buildList((Collection) value, context, rootContext));
-                else
-                    result.put(actualKey, value);
+    private InlineString compileInlineString(String str) {
+        List<Object> segments = new ArrayList<>();
+        boolean isEscaped = false;
+        StringBuilder builder = new StringBuilder();
+        StringBuilder varBuilder = new StringBuilder();
+        int varCount = 0;
+        int i = 0;
+        while (i < str.length()) {
+            char curChar = str.charAt(i);
+            if (curChar == '@' && checkChar(str, i + 1, '{') && !isEscaped) {
+                varBuilder.append(str, i, i + 2);
+                i++;
+                varCount++;
+            } else if (curChar == '}' && checkChar(str, i + 1, '@') && !isEscaped && varCount > 0) {
+                varBuilder.append(str, i, i + 2);
+                i++;
+                varCount--;
+                if (varCount == 0) {
+                    if (builder.length() > 0) {
+                        segments.add(builder.toString());
+                        builder.setLength(0);
+                    }
+                    segments.add(compile(varBuilder.substring(2, varBuilder.length() - 2)));
+                    varBuilder.setLength(0);
+                }
+            } else if (varCount != 0) {
+                if (curChar == '\\') {
+                    if (isEscaped)
+                        varBuilder.append(curChar);
+                    isEscaped = !isEscaped;
+                } else {
+                    varBuilder.append(curChar);
+                    isEscaped = false;
+                }
+            } else {
+                if (curChar == '\\') {
+                    if (isEscaped)
+                        builder.append(curChar);
+                    isEscaped = !isEscaped;
+                } else {
+                    builder.append(curChar);
+                    isEscaped = false;
+                }
+            }
+            i++;
+        }
+        if (varBuilder.length() > 0)
+            builder.append(varBuilder);
+        if (builder.length() > 0)
+            segments.add(builder.toString());
+        return InlineString.of(str, segments);
+    }
+
+    private Schema compileObject(Map<String, Object> schema) {
+        Schema objectSchema = schema.containsKey(KEY_OBJECT_SCHEMA) ? compile(schema.get(KEY_OBJECT_SCHEMA)) : null;
+        Schema arraySchema = schema.get(KEY_ARRAY_SCHEMA) != null ? compile(schema.get(KEY_ARRAY_SCHEMA)) : null;
+        List<ObjectSchema.Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : schema.entrySet()) {
+            if (isValidKey(entry.getKey()))
+                properties.add(ObjectSchema.Property.of(entry.getKey(),
+                        hasInlineVariable(entry.getKey()) ? compileInlineString(entry.getKey()) : null,
+                        compile(entry.getValue())));
+        }
+        if (objectSchema == null && arraySchema == null && isConstantProperties(properties)) {
+            logger.trace("Fold constant object schema");
+            Map<String, Object> value = new LinkedHashMap<>();
+            for (ObjectSchema.Property property : properties)
+                value.put(property.hasInlineVariable() ? property.getInlineKey().getConstant() : property.getKey(),
+                        getConstantValue(property.getValue()));
+            return ValueSchema.of(Collections.unmodifiableMap(value));
+        }
+        return ObjectSchema.of(schema, objectSchema, arraySchema, properties);
+    }
+
+    private Schema compileList(Collection<Object> schema) {
+        List<Schema> items = new ArrayList<>(schema.size());
+        for (Object value : schema) {
+            if (value instanceof Map && ((Map) value).get(KEY_ARRAY_SCHEMA) == null) {
+                logger.error("Missing array schema in child schema");
+                throw new IllegalArgumentException("Missing array schema in child schema");
             }
+            items.add(compile(value));
+        }
+        if (items.stream().allMatch(this::isConstant)) {
+            logger.trace("Fold constant array schema");
+            List<Object> value = new ArrayList<>(items.size());
+            for (Schema item : items)
+                value.add(getConstantValue(item));
+            return ValueSchema.of(Collections.unmodifiableList(value));
+        }
+        return ListSchema.of(schema, items);
+    }
+
+    private boolean isConstantProperties(List<ObjectSchema.Property> properties) {
+        for (ObjectSchema.Property property : properties) {
+            if (property.hasInlineVariable() && !property.getInlineKey().isConstant())
+                return false;
+            if (!isConstant(property.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    boolean isConstant(Schema schema) {
+        return schema instanceof ValueSchema || (schema instanceof RawSchema && ((RawSchema) schema).getRaw().isConstant());
+    }
+
+    private Object getConstantValue(Schema schema) {
+        if (schema instanceof RawSchema)
+            return ((RawSchema) schema).getRaw().getConstant();
+        return ((ValueSchema) schema).getValue();
+    }
+
+    private Object build(Schema schema, ScopedContext context) {
+        if (schema == null)
+            return null;
+        logger.info("Build schema: {}", schema);
+        return evaluate(schema, context);
+    }
+
+    private Object evaluate(Schema schema, ScopedContext context) {
+        if (schema instanceof JsonPathSchema)
+            return buildNodeFromJsonPath((JsonPathSchema) schema, context);
+        if (schema instanceof FunctionSchema)
+            return buildNodeFromFunction((FunctionSchema) schema, context);
+        if (schema instanceof RawSchema)
+            return buildInlineString(((RawSchema) schema).getRaw(), context);
+        if (schema instanceof ObjectSchema)
+            return buildObject((ObjectSchema) schema, context);
+        if (schema instanceof ListSchema)
+            return buildList((ListSchema) schema, context);
+        return ((ValueSchema) schema).getValue();
+    }
+
+    private Map buildObject(ObjectSchema schema, ScopedContext context) {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        if(schema.getObjectSchema() != null) {
+            logger.trace("Found object schema. Switching context");
+            Object object = toSingleObject(build(schema.getObjectSchema(), context));
+            context = context.scope(object);
+        }
+
+        for(ObjectSchema.Property property : schema.getProperties()) {
+            String actualKey = property.getKey();
+
+            if(property.hasInlineVariable()) {
+                logger.trace("Found inline variable in [{}] key", actualKey);
+                actualKey = buildInlineString(property.getInlineKey(), context);
+            }
+
+            logger.info("Build for [{}] key with schema: {}", actualKey, property.getValue());
+            result.put(actualKey, build(property.getValue(), context));
         }
 
         return result;
     }
 
-    private List buildList(Collection schema, DocumentContext context, DocumentContext rootContext) {
+    private List buildList(ListSchema schema, ScopedContext context) {
         List<Object> result = new ArrayList<>();
-        for (Object value : (Iterable<Object>) schema) {
+        for (Schema value : schema.getItems()) {
             logger.info("Build items with schema: {}", value);
-            if (value instanceof String) {
-                Object item = build(value, context, rootContext);
+            if (value instanceof JsonPathSchema || value instanceof FunctionSchema || value instanceof RawSchema) {
+                Object item = build(value, context);
                 if (item instanceof Collection)
                     result.addAll((Collection) item);
                 else
                     result.add(item);
-            } else if (value instanceof Map) {
-                Object arraySchema =  ((Map) value).get(KEY_ARRAY_SCHEMA);
-                if (arraySchema == null) {
-                    logger.error("Missing array schema in child schema");
-                    throw new IllegalArgumentException("Missing array schema in child schema");
+            } else if (value instanceof ObjectSchema) {
+                Collection<Object> items = toObjectList(build(((ObjectSchema) value).getArraySchema(), context));
+                if (isParallel(context, items.size()))
+                    result.addAll(buildItemsInParallel(value, items, context));
+                else {
+                    for (Object object : items)
+                        result.add(build(value, context.scope(object)));
                 }
-                Collection<Object> items = toObjectList(build(arraySchema, context, rootContext));
-                result.addAll(items.stream()
-                        .map(object -> build(value, JsonPath.using(context.configuration()).parse(object), rootContext))
-                        .collect(Collectors.toList()));
-            } else if (value instanceof Collection)
-                result.add(buildList((Collection) value, context, rootContext));
-            else
-                result.add(value);
+            } else
+                result.add(build(value, context));
         }
         return result;
     }
 
-    private Object buildNodeFromJsonPath(Type type, DocumentContext context, DocumentContext rootContext, String jsonPath) {
+    private boolean isParallel(ScopedContext context, int size) {
+        return parallelThreshold > 0 && size >= parallelThreshold && size > 1 && !context.isSequential();
+    }
+
+    private List<Object> buildItemsInParallel(Schema schema, Collection<Object> items, ScopedContext context) {
+        Executor executor = this.executor != null ? this.executor : ForkJoinPool.commonPool();
+        int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+        List<Object> objects = items instanceof List ? (List<Object>) items : new ArrayList<>(items);
+        int chunkSize = Math.max(1, (objects.size() + parallelism * 4 - 1) / (parallelism * 4));
+        logger.trace("Build {} items in parallel with chunk size {}", objects.size(), chunkSize);
+
+        ScopedContext sequentialContext = context.sequential();
+        List<CompletableFuture<Object[]>> futures = new ArrayList<>();
+        for (int start = 0; start < objects.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(objects.size(), start + chunkSize);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                Object[] values = new Object[to - from];
+                for (int i = from; i < to; i++)
+                    values[i - from] = build(schema, sequentialContext.scope(objects.get(i)));
+                return values;
+            }, executor));
+        }
+
+        List<Object> result = new ArrayList<>(objects.size());
+        for (CompletableFuture<Object[]> future : futures) {
+            try {
+                Collections.addAll(result, future.join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                if (ex.getCause() instanceof Error)
+                    throw (Error) ex.getCause();
+                throw ex;
+            }
+        }
+        return result;
+    }
+
+    private Object buildNodeFromJsonPath(JsonPathSchema schema, ScopedContext context) {
+        Type type = schema.getType();
+        String jsonPath = schema.getPath();
         logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, type);
-        if(hasInlineVariable(jsonPath)) {
+        Object object;
+        if (schema.getTemplate() != null) {
             logger.trace("Found inline variable");
-            jsonPath = buildStringFromRawData(jsonPath, context, rootContext);
-            logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, type);
+            object = parseJsonPathTemplate(schema, context);
+        } else {
+            if (schema.hasInlineVariable()) {
+                logger.trace("Found inline variable");
+                jsonPath = buildInlineString(schema.getInlinePath(), context);
+                logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, type);
+            }
+            object = parseJsonPath(jsonPath, schema.getCompiledPath(), context);
         }
-        Object object = parseJsonPath(jsonPath, context, rootContext);
         if (object == null)
             return null;
         if (type == null)
@@ -157,86 +512,101 @@ public class JsonBuilder {
 
         if (!type.isArray)
             return castToType(toSingleObject(object), type);
-        else
-            return toObjectList(object).stream()
-                    .map(obj -> castToType(obj, type.elementType))
-                    .collect(Collectors.toList());
+
+        Collection<Object> items = toObjectList(object);
+        List<Object> result = new ArrayList<>(items.size());
+        for (Object item : items)
+            result.add(castToType(item, type.elementType));
+        return result;
     }
 
-    private Object buildNodeFromFunction(Type type, List<TokenValue> tokenValues, DocumentContext context, DocumentContext rootContext) {
-        TokenValue tokenValue = tokenValues.remove(0);
-        final String funcName = tokenValue.getValue();
-        logger.trace("build Node with [{}] function to [{}] type", funcName, type);
-        Function function = functionMap.get(funcName);
-        if (function == null) {
-            logger.error("Unsupported function: {}", funcName);
-            throw new IllegalArgumentException("Not support function: " + funcName);
-        }
+    private Object buildNodeFromFunction(FunctionSchema schema, ScopedContext context) {
+        Type type = schema.getType();
+        Function function = schema.getFunction();
+        List<Schema> arguments = schema.getArguments();
+        logger.trace("build Node with [{}] function to [{}] type", function.getName(), type);
         if (function.isReduceFunction()) {
             Function.Result result = null;
-            while (!tokenValues.isEmpty()) {
-                tokenValue = tokenValues.get(0);
-                Object argument = null;
-                if (tokenValue.getToken() == Token.JSON_PATH)
-                    argument = parseJsonPath(tokenValue.getValue(), context, rootContext);
-                else if (tokenValue.getToken() == Token.FUNC)
-                    argument = buildNodeFromFunction(null, tokenValues, context, rootContext);
-                else if (tokenValue.getToken() == Token.RAW)
-                    argument = parseRawData(tokenValue.getValue(), context, rootContext);
-                else if (tokenValue.getToken() == Token.END_FUNC)
-                    break;
-                tokenValues.remove(0);
-                result = function.handle(type, argument, result);
+            for (int i = 0; i < arguments.size(); i++) {
+                result = function.handle(type, evaluate(arguments.get(i), context), result);
                 if (result != null && result.isDone())
-                    return result.getValue();
+                    break;
             }
             return result == null ? null : result.getValue();
         } else {
-            List<Object> arguments = new ArrayList<>();
-            while (!tokenValues.isEmpty()) {
-                tokenValue = tokenValues.get(0);
-                if (tokenValue.getToken() == Token.JSON_PATH)
-                    arguments.add(parseJsonPath(tokenValue.getValue(), context, rootContext));
-                else if (tokenValue.getToken() == Token.FUNC)
-                    arguments.add(buildNodeFromFunction(null, tokenValues, context, rootContext));
-                else if (tokenValue.getToken() == Token.RAW)
-                    arguments.add(parseRawData(tokenValue.getValue(), context, rootContext));
-                else if (tokenValue.getToken() == Token.END_FUNC)
-                    break;
-                tokenValues.remove(0);
-            }
-            return function.invoke(type, arguments);
+            Object[] values = new Object[arguments.size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = evaluate(arguments.get(i), context);
+            return function.invoke(type, Arrays.asList(values));
         }
     }
 
-    private Object parseJsonPath(String jsonPath, DocumentContext context, DocumentContext rootContext) {
-        if(jsonPath.startsWith("$$")) {
-            logger.trace("Using root context");
-            return rootContext.read(jsonPath.substring(1));
+    private Object parseJsonPathTemplate(JsonPathSchema schema, ScopedContext context) {
+        JsonPathTemplate template = schema.getTemplate();
+        List<JsonPathTemplate.Hole> holes = template.getHoles();
+        String[] values = new String[holes.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = String.valueOf(build(holes.get(i).getValue(), context));
+
+        ScopedContext targetContext = template.isRoot() ? context.root() : context;
+        Configuration conf = targetContext.configuration();
+        if (conf.getOptions().isEmpty()) {
+            try {
+                Object object = null;
+                for (int i = 0; i < values.length && object != JsonProvider.UNDEFINED; i++) {
+                    JsonPathTemplate.Hole hole = holes.get(i);
+                    if (i == 0)
+                        object = targetContext.read(hole.getPath());
+                    else if (hole.getPath() != null)
+                        object = hole.getPath().read(object, conf);
+                    object = selectHoleValue(hole.getKind(), values[i], object, conf.jsonProvider());
+                }
+                if (object != JsonProvider.UNDEFINED)
+                    return template.getTail() == null ? object : template.getTail().read(object, conf);
+            } catch (JsonPathException | IllegalArgumentException ex) {
+                logger.trace("Cannot read jsonPath with holes: {}", ex.getMessage());
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(schema.getInlinePath().getEstimatedLength());
+        int index = 0;
+        for (Object segment : schema.getInlinePath().getSegments()) {
+            if (segment instanceof String)
+                builder.append((String) segment);
+            else
+                builder.append(values[index++]);
         }
-        return context.read(jsonPath);
+        String jsonPath = builder.toString();
+        logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, schema.getType());
+        return parseJsonPath(jsonPath, null, context);
     }
 
-    private Object parseRawData(String rawData, DocumentContext context, DocumentContext rootContext) {
-        if (PATTERN_NUMERIC.matcher(rawData).matches()) {
-            if (rawData.contains(".")) {
-                try {
-                    return new BigDecimal(rawData);
-                } catch (NumberFormatException ex) {
-                    logger.trace("Cannot parse [{}] as decimal", rawData);
-                }
-            } else {
-                try {
-                    return new BigInteger(rawData);
-                } catch (NumberFormatException ex) {
-                    logger.trace("Cannot parse [{}] as integer", rawData);
-                }
-            }
+    private Object selectHoleValue(JsonPathTemplate.Kind kind, String value, Object object, JsonProvider jsonProvider) {
+        if (kind == JsonPathTemplate.Kind.INDEX) {
+            if (!jsonProvider.isArray(object) || !PATTERN_INDEX.matcher(value).matches())
+                return JsonProvider.UNDEFINED;
+            int length = jsonProvider.length(object);
+            int index = Integer.parseInt(value);
+            if (index < 0)
+                index += length;
+            if (index < 0 || index >= length)
+                return JsonProvider.UNDEFINED;
+            return jsonProvider.getArrayIndex(object, index);
         }
-        if (rawData.equalsIgnoreCase("true") || rawData.equalsIgnoreCase("false")) {
-            return rawData.equalsIgnoreCase("true");
+        if (!jsonProvider.isMap(object) || !PATTERN_PROPERTY.matcher(value).matches())
+            return JsonProvider.UNDEFINED;
+        return jsonProvider.getMapValue(object, value);
+    }
+
+    private Object parseJsonPath(String jsonPath, JsonPath compiledPath, ScopedContext context) {
+        boolean useRootContext = jsonPath.startsWith("$$");
+        if (compiledPath == null)
+            compiledPath = jsonPathCache.get(useRootContext ? jsonPath.substring(1) : jsonPath);
+        if(useRootContext) {
+            logger.trace("Using root context");
+            return context.root().read(compiledPath);
         }
-        return buildStringFromRawData(rawData, context, rootContext);
+        return context.read(compiledPath);
     }
 
     private Object castToType(Object object, Type type) {
@@ -276,49 +646,16 @@ public class JsonBuilder {
         return object;
     }
 
-    private String buildStringFromRawData(String str, DocumentContext context, DocumentContext rootContext) {
-        boolean isEscaped = false;
-        StringBuilder builder = new StringBuilder();
-        StringBuilder varBuilder = new StringBuilder();
-        int varCount = 0;
-        int i = 0;
-        while (i < str.length()) {
-            char curChar = str.charAt(i);
-            if (curChar == '@' && checkChar(str, i + 1, '{') && !isEscaped) {
-                varBuilder.append(str, i, i + 2);
-                i++;
-                varCount++;
-            } else if (curChar == '}' && checkChar(str, i + 1, '@') && !isEscaped && varCount > 0) {
-                varBuilder.append(str, i, i + 2);
-                i++;
-                varCount--;
-                if (varCount == 0) {
-                    builder.append(build(varBuilder.substring(2, varBuilder.length() - 2), context, rootContext));
-                    varBuilder.delete(0, varBuilder.length());
-                }
-            } else if (varCount != 0) {
-                if (curChar == '\\') {
-                    if (isEscaped)
-                        varBuilder.append(curChar);
-                    isEscaped = !isEscaped;
-                } else {
-                    varBuilder.append(curChar);
-                    isEscaped = false;
-                }
-            } else {
-                if (curChar == '\\') {
-                    if (isEscaped)
-                        builder.append(curChar);
-                    isEscaped = !isEscaped;
-                } else {
-                    builder.append(curChar);
-                    isEscaped = false;
-                }
-            }
-            i++;
+    private String buildInlineString(InlineString str, ScopedContext context) {
+        if (str.isConstant())
+            return str.getConstant();
+        StringBuilder builder = new StringBuilder(str.getEstimatedLength());
+        for (Object segment : str.getSegments()) {
+            if (segment instanceof String)
+                builder.append((String) segment);
+            else
+                builder.append(build((Schema) segment, context));
         }
-        if(varBuilder.length() > 0)
-            builder.append(varBuilder);
         return builder.toString();
     }
 
@@ -0,0 +1,93 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.JsonPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class JsonPathCache {
+
+    private Logger logger = LoggerFactory.getLogger(JsonPathCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final int maxSize;
+    private final Map<String, JsonPath> cache;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public JsonPathCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public JsonPathCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<String, JsonPath>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonPath> eldest) {
+                if (size() <= JsonPathCache.this.maxSize)
+                    return false;
+                evictionCount++;
+                logger.trace("Evict [{}] jsonPath", eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    public JsonPath get(String path) {
+        synchronized (cache) {
+            JsonPath jsonPath = cache.get(path);
+            if (jsonPath != null) {
+                hitCount++;
+                return jsonPath;
+            }
+            missCount++;
+        }
+        JsonPath jsonPath = JsonPath.compile(path);
+        synchronized (cache) {
+            cache.put(path, jsonPath);
+        }
+        return jsonPath;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount() {
+        synchronized (cache) {
+            return hitCount;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (cache) {
+            return missCount;
+        }
+    }
+
+    public long getEvictionCount() {
+        synchronized (cache) {
+            return evictionCount;
+        }
+    }
+
+}
@@ -0,0 +1,373 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class JsonProjector {
+
+    private static final Pattern PATTERN_TOKEN = Pattern.compile("\\G(?:\\['((?:[^'\\\\]|\\\\.)*)'\\]|\\[(\\d+)\\]|(\\[\\*\\]))");
+
+    private static final Pattern PATTERN_NUMBER = Pattern.compile("-?(?:0|[1-9]\\d*)(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
+
+    private static final Object SKIPPED = new Object();
+
+    private final Node root = new Node();
+
+    public JsonProjector(List<String> paths) {
+        for (String path : paths)
+            add(path);
+    }
+
+    public Object parse(InputStream inputStream, JsonProvider jsonProvider) throws IOException {
+        Parser parser = new Parser(inputStream, jsonProvider);
+        Object value = parser.parseValue(root);
+        if (parser.peek() != -1)
+            throw new InvalidJsonException("Unexpected character after JSON value");
+        return value == SKIPPED ? null : value;
+    }
+
+    private void add(String path) {
+        if (!path.startsWith("$"))
+            throw new IllegalArgumentException("Projection path must start with $: " + path);
+        Node node = root;
+        Matcher matcher = PATTERN_TOKEN.matcher(path);
+        int position = 1;
+        while (!node.all && position < path.length()) {
+            if (!matcher.find(position) || matcher.start() != position)
+                break;
+            if (matcher.group(2) != null)
+                node = node.indexes.computeIfAbsent(Integer.parseInt(matcher.group(2)), key -> new Node());
+            else if (matcher.group(3) != null)
+                node = node.wildcard == null ? (node.wildcard = new Node()) : node.wildcard;
+            else
+                node = node.properties.computeIfAbsent(matcher.group(1).replace("\\'", "'"), key -> new Node());
+            position = matcher.end();
+        }
+        node.all = true;
+    }
+
+    private static class Node {
+        final Map<String, Node> properties = new HashMap<>();
+        final Map<Integer, Node> indexes = new HashMap<>();
+        Node wildcard;
+        boolean all;
+
+        Node property(String key) {
+            Node node = properties.get(key);
+            return node != null ? node : wildcard;
+        }
+
+        Node index(int index) {
+            Node node = indexes.get(index);
+            return node != null ? node : wildcard;
+        }
+    }
+
+    private static class Parser {
+
+        private final InputStream inputStream;
+        private final JsonProvider jsonProvider;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+
+        private byte[] text = new byte[64];
+
+        Parser(InputStream inputStream, JsonProvider jsonProvider) {
+            this.inputStream = inputStream;
+            this.jsonProvider = jsonProvider;
+        }
+
+        Object parseValue(Node node) throws IOException {
+            if (node == null) {
+                skipValue();
+                return SKIPPED;
+            }
+            if (node.all)
+                return readValue();
+            int c = peek();
+            if (c == '{' && (node.wildcard != null || !node.properties.isEmpty()))
+                return parseObject(node);
+            if (c == '[' && (node.wildcard != null || !node.indexes.isEmpty()))
+                return parseArray(node);
+            skipValue();
+            return SKIPPED;
+        }
+
+        private Object parseObject(Node node) throws IOException {
+            Object map = jsonProvider.createMap();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return map;
+            }
+            do {
+                String key = readString();
+                expect(':');
+                Object value = parseValue(node.property(key));
+                if (value != SKIPPED)
+                    jsonProvider.setProperty(map, key, value);
+            } while (next(','));
+            expect('}');
+            return map;
+        }
+
+        private Object parseArray(Node node) throws IOException {
+            Object array = jsonProvider.createArray();
+            expect('[');
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            int index = 0;
+            int size = 0;
+            do {
+                Object value = parseValue(node.index(index));
+                if (value != SKIPPED) {
+                    while (size < index)
+                        jsonProvider.setArrayIndex(array, size++, null);
+                    jsonProvider.setArrayIndex(array, size++, value);
+                }
+                index++;
+            } while (next(','));
+            expect(']');
+            return array;
+        }
+
+        private Object readValue() throws IOException {
+            int c = peek();
+            if (c == '{') {
+                Object map = jsonProvider.createMap();
+                position++;
+                if (peek() == '}') {
+                    position++;
+                    return map;
+                }
+                do {
+                    String key = readString();
+                    expect(':');
+                    jsonProvider.setProperty(map, key, readValue());
+                } while (next(','));
+                expect('}');
+                return map;
+            }
+            if (c == '[') {
+                Object array = jsonProvider.createArray();
+                position++;
+                if (peek() == ']') {
+                    position++;
+                    return array;
+                }
+                int index = 0;
+                do {
+                    jsonProvider.setArrayIndex(array, index++, readValue());
+                } while (next(','));
+                expect(']');
+                return array;
+            }
+            if (c == '"')
+                return readString();
+            if (c == 't') {
+                expectLiteral("true");
+                return Boolean.TRUE;
+            }
+            if (c == 'f') {
+                expectLiteral("false");
+                return Boolean.FALSE;
+            }
+            if (c == 'n') {
+                expectLiteral("null");
+                return null;
+            }
+            return readNumber();
+        }
+
+        private void skipValue() throws IOException {
+            int c = peek();
+            if (c == '"') {
+                skipString();
+                return;
+            }
+            if (c != '{' && c != '[') {
+                if (c == 't')
+                    expectLiteral("true");
+                else if (c == 'f')
+                    expectLiteral("false");
+                else if (c == 'n')
+                    expectLiteral("null");
+                else
+                    skipNumber();
+                return;
+            }
+            int depth = 0;
+            do {
+                c = read();
+                if (c == -1)
+                    throw new InvalidJsonException("Unexpected end of JSON");
+                if (c == '"') {
+                    position--;
+                    skipString();
+                } else if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+            } while (depth > 0);
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder builder = null;
+            int length = 0;
+            while (true) {
+                int c = read();
+                if (c == -1)
+                    throw new InvalidJsonException("Unterminated string");
+                if (c == '"')
+                    break;
+                if (c != '\\') {
+                    length = append(length, (byte) c);
+                    continue;
+                }
+                if (builder == null)
+                    builder = new StringBuilder();
+                builder.append(new String(text, 0, length, StandardCharsets.UTF_8));
+                length = 0;
+                c = read();
+                switch (c) {
+                    case 'b': builder.append('\b'); break;
+                    case 'f': builder.append('\f'); break;
+                    case 'n': builder.append('\n'); break;
+                    case 'r': builder.append('\r'); break;
+                    case 't': builder.append('\t'); break;
+                    case 'u': {
+                        int codeUnit = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0)
+                                throw new InvalidJsonException("Invalid unicode escape");
+                            codeUnit = (codeUnit << 4) | digit;
+                        }
+                        builder.append((char) codeUnit);
+                        break;
+                    }
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) c);
+                        break;
+                    default:
+                        throw new InvalidJsonException("Invalid escape character");
+                }
+            }
+            String value = new String(text, 0, length, StandardCharsets.UTF_8);
+            return builder == null ? value : builder.append(value).toString();
+        }
+
+        private void skipString() throws IOException {
+            expect('"');
+            while (true) {
+                int c = read();
+                if (c == -1)
+                    throw new InvalidJsonException("Unterminated string");
+                if (c == '"')
+                    return;
+                if (c == '\\')
+                    read();
+            }
+        }
+
+        private Object readNumber() throws IOException {
+            int length = 0;
+            while (true) {
+                int c = position < limit || fill() ? buffer[position] : -1;
+                if (!((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'))
+                    break;
+                length = append(length, (byte) c);
+                position++;
+            }
+            if (length == 0)
+                throw new InvalidJsonException("Unexpected character in JSON");
+            String number = new String(text, 0, length, StandardCharsets.US_ASCII);
+            if (!PATTERN_NUMBER.matcher(number).matches())
+                throw new InvalidJsonException("Invalid number: " + number);
+            return jsonProvider.parse(number);
+        }
+
+        private void skipNumber() throws IOException {
+            boolean empty = true;
+            while (true) {
+                int c = position < limit || fill() ? buffer[position] : -1;
+                if (!((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'))
+                    break;
+                empty = false;
+                position++;
+            }
+            if (empty)
+                throw new InvalidJsonException("Unexpected character in JSON");
+        }
+
+        private void expectLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (read() != literal.charAt(i))
+                    throw new InvalidJsonException("Unexpected literal, expected " + literal);
+            }
+        }
+
+        private int append(int length, byte b) {
+            if (length == text.length)
+                text = Arrays.copyOf(text, length * 2);
+            text[length] = b;
+            return length + 1;
+        }
+
+        private boolean next(char c) throws IOException {
+            if (peek() != c)
+                return false;
+            position++;
+            return true;
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c)
+                throw new InvalidJsonException("Expected '" + c + "' in JSON");
+            position++;
+        }
+
+        int peek() throws IOException {
+            while (position < limit || fill()) {
+                int c = buffer[position] & 0xFF;
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                    return c;
+                position++;
+            }
+            return -1;
+        }
+
+        private int read() throws IOException {
+            if (position < limit || fill())
+                return buffer[position++] & 0xFF;
+            return -1;
+        }
+
+        private boolean fill() throws IOException {
+            int count = inputStream.read(buffer, 0, buffer.length);
+            if (count <= 0)
+                return false;
+            position = 0;
+            limit = count;
+            return true;
+        }
+
+    }
+
+}
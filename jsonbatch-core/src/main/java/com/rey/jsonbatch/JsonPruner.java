@@ -0,0 +1,119 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@SuppressWarnings("unchecked")
+class JsonPruner {
+
+    private Logger logger = LoggerFactory.getLogger(JsonPruner.class);
+
+    private static final Pattern PATTERN_TOKEN = Pattern.compile("\\['((?:[^'\\\\]|\\\\.)*)'\\]|\\[(\\d+)\\]");
+
+    private final Configuration configuration;
+
+    JsonPruner(Configuration configuration) {
+        this.configuration = Configuration.builder()
+                .jsonProvider(configuration.jsonProvider())
+                .mappingProvider(configuration.mappingProvider())
+                .options(Option.AS_PATH_LIST, Option.SUPPRESS_EXCEPTIONS)
+                .build();
+    }
+
+    Object prune(Object json, List<JsonPath> paths) {
+        if (json == null)
+            return null;
+        Object result = null;
+        for (JsonPath path : paths) {
+            List<String> normalizedPaths = path.read(json, configuration);
+            if (normalizedPaths == null)
+                continue;
+            for (String normalizedPath : normalizedPaths) {
+                result = copy(json, result, normalizedPath);
+                if (result == json)
+                    return json;
+            }
+        }
+        logger.trace("Pruned json to [{}] paths", paths.size());
+        return result;
+    }
+
+    private Object copy(Object source, Object target, String normalizedPath) {
+        List<Object> tokens = tokenize(normalizedPath);
+        if (tokens.isEmpty())
+            return source;
+        Object root = target != null ? target : newContainer(source);
+        Object sourceNode = source;
+        Object targetNode = root;
+        for (int i = 0; i < tokens.size(); i++) {
+            Object token = tokens.get(i);
+            if (!has(sourceNode, token))
+                break;
+            Object sourceChild = get(sourceNode, token);
+            Object targetChild = has(targetNode, token) ? get(targetNode, token) : null;
+            if (targetChild == sourceChild && targetChild != null)
+                break;
+            if (i == tokens.size() - 1 || !(sourceChild instanceof Map || sourceChild instanceof List)) {
+                put(targetNode, token, sourceChild);
+                break;
+            }
+            if (targetChild == null) {
+                targetChild = newContainer(sourceChild);
+                put(targetNode, token, targetChild);
+            }
+            sourceNode = sourceChild;
+            targetNode = targetChild;
+        }
+        return root;
+    }
+
+    private List<Object> tokenize(String normalizedPath) {
+        List<Object> tokens = new ArrayList<>();
+        Matcher matcher = PATTERN_TOKEN.matcher(normalizedPath);
+        while (matcher.find()) {
+            if (matcher.group(2) != null)
+                tokens.add(Integer.parseInt(matcher.group(2)));
+            else
+                tokens.add(matcher.group(1).replace("\\'", "'"));
+        }
+        return tokens;
+    }
+
+    private Object newContainer(Object source) {
+        return source instanceof List ? new ArrayList<>() : new LinkedHashMap<>();
+    }
+
+    private boolean has(Object node, Object token) {
+        if (token instanceof Integer)
+            return node instanceof List && (Integer) token < ((List) node).size();
+        return node instanceof Map && ((Map) node).containsKey(token);
+    }
+
+    private Object get(Object node, Object token) {
+        if (token instanceof Integer)
+            return ((List) node).get((Integer) token);
+        return ((Map) node).get(token);
+    }
+
+    private void put(Object node, Object token, Object value) {
+        if (token instanceof Integer) {
+            List<Object> list = (List<Object>) node;
+            int index = (Integer) token;
+            while (list.size() <= index)
+                list.add(null);
+            list.set(index, value);
+        } else
+            ((Map<String, Object>) node).put((String) token, value);
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class JsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final JsonProvider jsonProvider;
+
+    public JsonWriter(JsonProvider jsonProvider) {
+        this.jsonProvider = jsonProvider;
+    }
+
+    public void write(Object json, OutputStream outputStream) throws IOException {
+        Output output = new Output(outputStream, BUFFER.get());
+        output.writeValue(json);
+        output.flush();
+    }
+
+    public byte[] encode(Object json) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(json, outputStream);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private class Output {
+
+        private final OutputStream outputStream;
+        private final byte[] buffer;
+        private int position;
+
+        Output(OutputStream outputStream, byte[] buffer) {
+            this.outputStream = outputStream;
+            this.buffer = buffer;
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null)
+                writeAscii("null");
+            else if (value instanceof CharSequence || value instanceof Character)
+                writeString(value.toString());
+            else if (value instanceof Boolean)
+                writeAscii(value.toString());
+            else if (value instanceof Number && isFinite((Number) value))
+                writeAscii(value.toString());
+            else if (value instanceof Map)
+                writeObject((Map<?, ?>) value);
+            else if (value instanceof Iterable)
+                writeArray((Iterable<?>) value);
+            else if (value.getClass().isArray() && !(value instanceof byte[]))
+                writeArray(value);
+            else
+                writeRaw(jsonProvider.toJson(value));
+        }
+
+        private boolean isFinite(Number number) {
+            if (number instanceof Double)
+                return Double.isFinite(number.doubleValue());
+            if (number instanceof Float)
+                return Float.isFinite(number.floatValue());
+            return true;
+        }
+
+        private void writeObject(Map<?, ?> map) throws IOException {
+            writeByte('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first)
+                    writeByte(',');
+                first = false;
+                writeString(String.valueOf(entry.getKey()));
+                writeByte(':');
+                writeValue(entry.getValue());
+            }
+            writeByte('}');
+        }
+
+        private void writeArray(Iterable<?> items) throws IOException {
+            writeByte('[');
+            boolean first = true;
+            for (Object item : items) {
+                if (!first)
+                    writeByte(',');
+                first = false;
+                writeValue(item);
+            }
+            writeByte(']');
+        }
+
+        private void writeArray(Object array) throws IOException {
+            writeByte('[');
+            for (int i = 0, length = Array.getLength(array); i < length; i++) {
+                if (i > 0)
+                    writeByte(',');
+                writeValue(Array.get(array, i));
+            }
+            writeByte(']');
+        }
+
+        private void writeString(String value) throws IOException {
+            writeByte('"');
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        writeByte('\\');
+                        writeByte(c);
+                    } else if (c < 0x20)
+                        writeEscape(c);
+                    else
+                        writeByte(c);
+                } else if (c < 0x800) {
+                    writeByte(0xC0 | (c >> 6));
+                    writeByte(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    writeByte(0xF0 | (codePoint >> 18));
+                    writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                    writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                    writeByte(0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c))
+                    writeEscape(c);
+                else {
+                    writeByte(0xE0 | (c >> 12));
+                    writeByte(0x80 | ((c >> 6) & 0x3F));
+                    writeByte(0x80 | (c & 0x3F));
+                }
+            }
+            writeByte('"');
+        }
+
+        private void writeEscape(char c) throws IOException {
+            writeByte('\\');
+            switch (c) {
+                case '\b': writeByte('b'); return;
+                case '\f': writeByte('f'); return;
+                case '\n': writeByte('n'); return;
+                case '\r': writeByte('r'); return;
+                case '\t': writeByte('t'); return;
+                default:
+                    writeByte('u');
+                    writeByte(HEX[(c >> 12) & 0xF]);
+                    writeByte(HEX[(c >> 8) & 0xF]);
+                    writeByte(HEX[(c >> 4) & 0xF]);
+                    writeByte(HEX[c & 0xF]);
+            }
+        }
+
+        private void writeAscii(String value) throws IOException {
+            for (int i = 0, length = value.length(); i < length; i++)
+                writeByte(value.charAt(i));
+        }
+
+        private void writeRaw(String json) throws IOException {
+            flush();
+            outputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeByte(int b) throws IOException {
+            if (position == buffer.length)
+                flush();
+            buffer[position++] = (byte) b;
+        }
+
+        void flush() throws IOException {
+            if (position > 0) {
+                outputStream.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+    }
+
+}
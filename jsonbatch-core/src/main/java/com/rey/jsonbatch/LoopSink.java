@@ -0,0 +1,10 @@
+package com.rey.jsonbatch;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface LoopSink {
+
+    CompletableFuture<Void> accept(String stream, Object counter, List<Object> requests, List<Object> responses);
+
+}
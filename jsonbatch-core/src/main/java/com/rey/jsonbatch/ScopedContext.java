@@ -0,0 +1,55 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+
+class ScopedContext {
+
+    private final Object json;
+    private final Configuration configuration;
+    private final ScopedContext root;
+    private final boolean sequential;
+
+    private ScopedContext(Object json, Configuration configuration, ScopedContext root, boolean sequential) {
+        if (json == null)
+            throw new IllegalArgumentException("json object can not be null");
+        this.json = json;
+        this.configuration = configuration;
+        this.root = root == null ? this : root;
+        this.sequential = sequential;
+    }
+
+    Object json() {
+        return json;
+    }
+
+    Configuration configuration() {
+        return configuration;
+    }
+
+    ScopedContext root() {
+        return root;
+    }
+
+    boolean isSequential() {
+        return sequential;
+    }
+
+    <T> T read(JsonPath jsonPath) {
+        return jsonPath.read(json, configuration);
+    }
+
+    ScopedContext scope(Object json) {
+        return new ScopedContext(json, configuration, root, sequential);
+    }
+
+    ScopedContext sequential() {
+        return sequential ? this : new ScopedContext(json, configuration, root, true);
+    }
+
+    static ScopedContext of(DocumentContext context) {
+        return new ScopedContext(context.json(), context.configuration(), null, false);
+    }
+
+}
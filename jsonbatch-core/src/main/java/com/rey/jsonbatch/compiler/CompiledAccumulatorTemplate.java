@@ -0,0 +1,38 @@
+package com.rey.jsonbatch.compiler;
+
+public class CompiledAccumulatorTemplate {
+
+    private final String name;
+
+    private final Operation operation;
+
+    private final Schema value;
+
+    public CompiledAccumulatorTemplate(String name, Operation operation, Schema value) {
+        this.name = name;
+        this.operation = operation;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Schema getValue() {
+        return value;
+    }
+
+    public enum Operation {
+        SUM,
+        COUNT,
+        MIN,
+        MAX,
+        CONCAT,
+        APPEND
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.rey.jsonbatch.compiler;
+
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.LoopOptions;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CompiledBatchTemplate {
+
+    private final List<CompiledRequestTemplate> requests;
+
+    private final List<CompiledResponseTemplate> responses;
+
+    private final DispatchOptions dispatchOptions;
+
+    private final LoopOptions loopOptions;
+
+    private final CompiledRetentionOptions retentionOptions;
+
+    private final List<JsonPath> responsePaths;
+
+    private final DispatchOptions projectedDispatchOptions;
+
+    private final DispatchOptions discardingDispatchOptions;
+
+    public CompiledBatchTemplate(List<CompiledRequestTemplate> requests,
+                                 List<CompiledResponseTemplate> responses,
+                                 DispatchOptions dispatchOptions,
+                                 LoopOptions loopOptions,
+                                 CompiledRetentionOptions retentionOptions,
+                                 List<JsonPath> responsePaths,
+                                 DispatchOptions projectedDispatchOptions,
+                                 DispatchOptions discardingDispatchOptions) {
+        this.requests = Collections.unmodifiableList(requests);
+        this.responses = Collections.unmodifiableList(responses);
+        this.dispatchOptions = dispatchOptions;
+        this.loopOptions = loopOptions;
+        this.retentionOptions = retentionOptions;
+        this.responsePaths = responsePaths == null ? null : Collections.unmodifiableList(responsePaths);
+        this.projectedDispatchOptions = projectedDispatchOptions;
+        this.discardingDispatchOptions = discardingDispatchOptions;
+    }
+
+    public List<CompiledRequestTemplate> getRequests() {
+        return requests;
+    }
+
+    public List<CompiledResponseTemplate> getResponses() {
+        return responses;
+    }
+
+    public DispatchOptions getDispatchOptions() {
+        return dispatchOptions;
+    }
+
+    public LoopOptions getLoopOptions() {
+        return loopOptions;
+    }
+
+    public CompiledRetentionOptions getRetentionOptions() {
+        return retentionOptions;
+    }
+
+    public List<JsonPath> getResponsePaths() {
+        return responsePaths;
+    }
+
+    public DispatchOptions getProjectedDispatchOptions() {
+        return projectedDispatchOptions;
+    }
+
+    public DispatchOptions getDiscardingDispatchOptions() {
+        return discardingDispatchOptions;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CompiledLoopTemplate {
+
+    private final Schema counterInit;
+
+    private final Schema counterPredicate;
+
+    private final Schema counterUpdate;
+
+    private final List<CompiledRequestTemplate> requests;
+
+    private final int concurrency;
+
+    private final int prefetch;
+
+    private final String stream;
+
+    private final List<CompiledAccumulatorTemplate> accumulators;
+
+    private final boolean retainTimes;
+
+    public CompiledLoopTemplate(Schema counterInit,
+                                Schema counterPredicate,
+                                Schema counterUpdate,
+                                List<CompiledRequestTemplate> requests,
+                                int concurrency,
+                                int prefetch,
+                                String stream,
+                                List<CompiledAccumulatorTemplate> accumulators,
+                                boolean retainTimes) {
+        this.counterInit = counterInit;
+        this.counterPredicate = counterPredicate;
+        this.counterUpdate = counterUpdate;
+        this.requests = Collections.unmodifiableList(requests);
+        this.concurrency = concurrency;
+        this.prefetch = prefetch;
+        this.stream = stream;
+        this.accumulators = Collections.unmodifiableList(accumulators);
+        this.retainTimes = retainTimes;
+    }
+
+    public Schema getCounterInit() {
+        return counterInit;
+    }
+
+    public Schema getCounterPredicate() {
+        return counterPredicate;
+    }
+
+    public Schema getCounterUpdate() {
+        return counterUpdate;
+    }
+
+    public List<CompiledRequestTemplate> getRequests() {
+        return requests;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public List<CompiledAccumulatorTemplate> getAccumulators() {
+        return accumulators;
+    }
+
+    public boolean isRetainTimes() {
+        return retainTimes;
+    }
+
+}
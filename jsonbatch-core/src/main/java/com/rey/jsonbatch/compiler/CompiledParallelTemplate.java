@@ -0,0 +1,25 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CompiledParallelTemplate {
+
+    private final List<CompiledRequestTemplate> requests;
+
+    private final int maxConcurrency;
+
+    public CompiledParallelTemplate(List<CompiledRequestTemplate> requests, int maxConcurrency) {
+        this.requests = Collections.unmodifiableList(requests);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public List<CompiledRequestTemplate> getRequests() {
+        return requests;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+}
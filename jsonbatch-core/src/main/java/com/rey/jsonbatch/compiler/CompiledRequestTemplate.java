@@ -0,0 +1,131 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class CompiledRequestTemplate {
+
+    private final Schema predicate;
+
+    private final Schema httpMethod;
+
+    private final Schema url;
+
+    private final Schema headers;
+
+    private final Schema body;
+
+    private final List<CompiledRequestTemplate> requests;
+
+    private final List<CompiledResponseTemplate> responses;
+
+    private final CompiledLoopTemplate loop;
+
+    private final CompiledParallelTemplate parallel;
+
+    private final List<CompiledResponseTemplate> transformers;
+
+    private final List<CompiledVarTemplate> vars;
+
+    private final CompiledRetentionOptions retention;
+
+    private final Dependencies predicateDependencies;
+
+    private final Dependencies dependencies;
+
+    private final Set<String> varNames;
+
+    public CompiledRequestTemplate(Schema predicate,
+                                   Schema httpMethod,
+                                   Schema url,
+                                   Schema headers,
+                                   Schema body,
+                                   List<CompiledRequestTemplate> requests,
+                                   List<CompiledResponseTemplate> responses,
+                                   CompiledLoopTemplate loop,
+                                   CompiledParallelTemplate parallel,
+                                   List<CompiledResponseTemplate> transformers,
+                                   List<CompiledVarTemplate> vars,
+                                   CompiledRetentionOptions retention,
+                                   Dependencies predicateDependencies,
+                                   Dependencies dependencies,
+                                   Set<String> varNames) {
+        this.predicate = predicate;
+        this.httpMethod = httpMethod;
+        this.url = url;
+        this.headers = headers;
+        this.body = body;
+        this.requests = Collections.unmodifiableList(requests);
+        this.responses = Collections.unmodifiableList(responses);
+        this.loop = loop;
+        this.parallel = parallel;
+        this.transformers = Collections.unmodifiableList(transformers);
+        this.vars = Collections.unmodifiableList(vars);
+        this.retention = retention;
+        this.predicateDependencies = predicateDependencies;
+        this.dependencies = dependencies;
+        this.varNames = varNames == null ? null : Collections.unmodifiableSet(varNames);
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getHttpMethod() {
+        return httpMethod;
+    }
+
+    public Schema getUrl() {
+        return url;
+    }
+
+    public Schema getHeaders() {
+        return headers;
+    }
+
+    public Schema getBody() {
+        return body;
+    }
+
+    public List<CompiledRequestTemplate> getRequests() {
+        return requests;
+    }
+
+    public List<CompiledResponseTemplate> getResponses() {
+        return responses;
+    }
+
+    public CompiledLoopTemplate getLoop() {
+        return loop;
+    }
+
+    public CompiledParallelTemplate getParallel() {
+        return parallel;
+    }
+
+    public List<CompiledResponseTemplate> getTransformers() {
+        return transformers;
+    }
+
+    public List<CompiledVarTemplate> getVars() {
+        return vars;
+    }
+
+    public CompiledRetentionOptions getRetention() {
+        return retention;
+    }
+
+    public Dependencies getPredicateDependencies() {
+        return predicateDependencies;
+    }
+
+    public Dependencies getDependencies() {
+        return dependencies;
+    }
+
+    public Set<String> getVarNames() {
+        return varNames;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.rey.jsonbatch.compiler;
+
+public class CompiledResponseTemplate {
+
+    private final Schema predicate;
+
+    private final Schema status;
+
+    private final Schema headers;
+
+    private final Schema body;
+
+    public CompiledResponseTemplate(Schema predicate, Schema status, Schema headers, Schema body) {
+        this.predicate = predicate;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getStatus() {
+        return status;
+    }
+
+    public Schema getHeaders() {
+        return headers;
+    }
+
+    public Schema getBody() {
+        return body;
+    }
+
+}
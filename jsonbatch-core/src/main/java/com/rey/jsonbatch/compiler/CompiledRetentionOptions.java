@@ -0,0 +1,47 @@
+package com.rey.jsonbatch.compiler;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CompiledRetentionOptions {
+
+    private static final CompiledRetentionOptions DEFAULT = new CompiledRetentionOptions(Policy.ALL, Collections.emptyList(), false);
+
+    private final Policy policy;
+
+    private final List<JsonPath> paths;
+
+    private final boolean compactResult;
+
+    public CompiledRetentionOptions(Policy policy, List<JsonPath> paths, boolean compactResult) {
+        this.policy = policy;
+        this.paths = Collections.unmodifiableList(paths);
+        this.compactResult = compactResult;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public List<JsonPath> getPaths() {
+        return paths;
+    }
+
+    public boolean isCompactResult() {
+        return compactResult;
+    }
+
+    public static CompiledRetentionOptions defaultOptions() {
+        return DEFAULT;
+    }
+
+    public enum Policy {
+        ALL,
+        HEADERS,
+        PATHS,
+        NONE
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.rey.jsonbatch.compiler;
+
+public class CompiledVarTemplate {
+
+    private final Schema predicate;
+
+    private final Schema vars;
+
+    public CompiledVarTemplate(Schema predicate, Schema vars) {
+        this.predicate = predicate;
+        this.vars = vars;
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getVars() {
+        return vars;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class Dependencies {
+
+    private static final Dependencies UNKNOWN = new Dependencies(true, Collections.emptySet(), Collections.emptySet());
+
+    private final boolean unknown;
+    private final Set<Integer> indexes;
+    private final Set<String> vars;
+
+    private Dependencies(boolean unknown, Set<Integer> indexes, Set<String> vars) {
+        this.unknown = unknown;
+        this.indexes = Collections.unmodifiableSet(new LinkedHashSet<>(indexes));
+        this.vars = Collections.unmodifiableSet(new LinkedHashSet<>(vars));
+    }
+
+    public boolean isUnknown() {
+        return unknown;
+    }
+
+    public Set<Integer> getIndexes() {
+        return indexes;
+    }
+
+    public Set<String> getVars() {
+        return vars;
+    }
+
+    public boolean isReady(int settledCount, Set<String> pendingVars) {
+        if (unknown)
+            return false;
+        for (Integer index : indexes) {
+            if (index >= settledCount)
+                return false;
+        }
+        if (pendingVars == null)
+            return vars.isEmpty();
+        for (String var : vars) {
+            if (pendingVars.contains(var))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return unknown ? "unknown" : "indexes=" + indexes + ", vars=" + vars;
+    }
+
+    public static Dependencies unknown() {
+        return UNKNOWN;
+    }
+
+    public static Dependencies of(Set<Integer> indexes, Set<String> vars) {
+        return new Dependencies(false, indexes, vars);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class DependencyAnalyzer {
+
+    private static final Pattern PATTERN_ORIGINAL = Pattern.compile("^\\$(?:\\.original|\\['original'\\])(?=[.\\[]|$)");
+    private static final Pattern PATTERN_INDEX = Pattern.compile("^\\$(?:\\.(?:requests|responses)|\\['(?:requests|responses)'\\])\\[(\\d{1,9})\\]");
+    private static final Pattern PATTERN_VAR = Pattern.compile("^\\$(?:\\.vars|\\['vars'\\])(?:\\.([^.\\[\\s()]+)|\\['([^']+)'\\])(?=[.\\[]|$)");
+
+    public Dependencies analyze(Schema... schemas) {
+        Set<Integer> indexes = new LinkedHashSet<>();
+        Set<String> vars = new LinkedHashSet<>();
+        for (Schema schema : schemas) {
+            if (!JsonPathVisitor.accept(schema, (path, complete) -> collect(path, complete, indexes, vars)))
+                return Dependencies.unknown();
+        }
+        return Dependencies.of(indexes, vars);
+    }
+
+    public Set<String> analyzeVarNames(List<CompiledVarTemplate> templates) {
+        Set<String> names = new LinkedHashSet<>();
+        for (CompiledVarTemplate template : templates) {
+            Schema vars = template.getVars();
+            if (vars instanceof ObjectSchema && ((ObjectSchema) vars).getObjectSchema() == null) {
+                for (ObjectSchema.Property property : ((ObjectSchema) vars).getProperties()) {
+                    if (property.hasInlineVariable() && !property.getInlineKey().isConstant())
+                        return null;
+                    names.add(property.hasInlineVariable() ? property.getInlineKey().getConstant() : property.getKey());
+                }
+            } else if (vars instanceof ValueSchema && ((ValueSchema) vars).getValue() instanceof Map) {
+                for (Object key : ((Map) ((ValueSchema) vars).getValue()).keySet())
+                    names.add(String.valueOf(key));
+            } else if (vars != null)
+                return null;
+        }
+        return names;
+    }
+
+    private boolean collect(String path, boolean complete, Set<Integer> indexes, Set<String> vars) {
+        Matcher matcher = PATTERN_ORIGINAL.matcher(path);
+        if (matcher.find())
+            return complete || matcher.end() < path.length();
+        matcher = PATTERN_INDEX.matcher(path);
+        if (matcher.find()) {
+            indexes.add(Integer.parseInt(matcher.group(1)));
+            return true;
+        }
+        matcher = PATTERN_VAR.matcher(path);
+        if (matcher.find() && (complete || matcher.end() < path.length())) {
+            vars.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            return true;
+        }
+        return false;
+    }
+
+}
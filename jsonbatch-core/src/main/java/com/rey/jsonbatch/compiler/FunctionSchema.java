@@ -0,0 +1,38 @@
+package com.rey.jsonbatch.compiler;
+
+import com.rey.jsonbatch.JsonBuilder.Type;
+import com.rey.jsonbatch.function.Function;
+
+import java.util.Collections;
+import java.util.List;
+
+public class FunctionSchema extends Schema {
+
+    private final Type type;
+    private final Function function;
+    private final List<Schema> arguments;
+
+    private FunctionSchema(Object source, Type type, Function function, List<Schema> arguments) {
+        super(source);
+        this.type = type;
+        this.function = function;
+        this.arguments = Collections.unmodifiableList(arguments);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public List<Schema> getArguments() {
+        return arguments;
+    }
+
+    public static FunctionSchema of(Object source, Type type, Function function, List<Schema> arguments) {
+        return new FunctionSchema(source, type, function, arguments);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+
+public class InlineString {
+
+    private static final int ESTIMATED_VARIABLE_LENGTH = 16;
+
+    private final String source;
+    // each segment is either a literal String or a Schema of an inline variable
+    private final List<Object> segments;
+    private final int estimatedLength;
+    private final String constant;
+
+    private InlineString(String source, List<Object> segments) {
+        this.source = source;
+        this.segments = Collections.unmodifiableList(segments);
+        int length = 0;
+        int variableCount = 0;
+        for (Object segment : segments) {
+            if (segment instanceof String)
+                length += ((String) segment).length();
+            else
+                variableCount++;
+        }
+        this.estimatedLength = length + variableCount * ESTIMATED_VARIABLE_LENGTH;
+        if (variableCount > 0)
+            this.constant = null;
+        else
+            this.constant = segments.isEmpty() ? "" : (String) segments.get(0);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<Object> getSegments() {
+        return segments;
+    }
+
+    public int getEstimatedLength() {
+        return estimatedLength;
+    }
+
+    public boolean isConstant() {
+        return constant != null;
+    }
+
+    public String getConstant() {
+        return constant;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    public static InlineString of(String source, List<Object> segments) {
+        return new InlineString(source, segments);
+    }
+
+}
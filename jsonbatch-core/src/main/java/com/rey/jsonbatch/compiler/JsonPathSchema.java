@@ -0,0 +1,51 @@
+package com.rey.jsonbatch.compiler;
+
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.JsonBuilder.Type;
+
+public class JsonPathSchema extends Schema {
+
+    private final Type type;
+    private final String path;
+    private final JsonPath compiledPath;
+    private final InlineString inlinePath;
+    private final JsonPathTemplate template;
+
+    private JsonPathSchema(Object source, Type type, String path, JsonPath compiledPath, InlineString inlinePath, JsonPathTemplate template) {
+        super(source);
+        this.type = type;
+        this.path = path;
+        this.compiledPath = compiledPath;
+        this.inlinePath = inlinePath;
+        this.template = template;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public JsonPath getCompiledPath() {
+        return compiledPath;
+    }
+
+    public boolean hasInlineVariable() {
+        return inlinePath != null;
+    }
+
+    public InlineString getInlinePath() {
+        return inlinePath;
+    }
+
+    public JsonPathTemplate getTemplate() {
+        return template;
+    }
+
+    public static JsonPathSchema of(Object source, Type type, String path, JsonPath compiledPath, InlineString inlinePath, JsonPathTemplate template) {
+        return new JsonPathSchema(source, type, path, compiledPath, inlinePath, template);
+    }
+
+}
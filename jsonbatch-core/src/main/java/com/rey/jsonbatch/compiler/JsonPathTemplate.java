@@ -0,0 +1,72 @@
+package com.rey.jsonbatch.compiler;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Collections;
+import java.util.List;
+
+public class JsonPathTemplate {
+
+    private final boolean root;
+    private final List<Hole> holes;
+    private final JsonPath tail;
+
+    private JsonPathTemplate(boolean root, List<Hole> holes, JsonPath tail) {
+        this.root = root;
+        this.holes = Collections.unmodifiableList(holes);
+        this.tail = tail;
+    }
+
+    public boolean isRoot() {
+        return root;
+    }
+
+    public List<Hole> getHoles() {
+        return holes;
+    }
+
+    public JsonPath getTail() {
+        return tail;
+    }
+
+    public static JsonPathTemplate of(boolean root, List<Hole> holes, JsonPath tail) {
+        return new JsonPathTemplate(root, holes, tail);
+    }
+
+    public enum Kind {
+        INDEX,
+        DOT_PROPERTY,
+        BRACKET_PROPERTY
+    }
+
+    public static class Hole {
+
+        private final JsonPath path;
+        private final Kind kind;
+        private final Schema value;
+
+        private Hole(JsonPath path, Kind kind, Schema value) {
+            this.path = path;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        public JsonPath getPath() {
+            return path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Schema getValue() {
+            return value;
+        }
+
+        public static Hole of(JsonPath path, Kind kind, Schema value) {
+            return new Hole(path, kind, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collection;
+
+interface JsonPathVisitor {
+
+    boolean visit(String path, boolean complete);
+
+    static boolean accept(Schema schema, JsonPathVisitor visitor) {
+        return accept(schema, false, visitor);
+    }
+
+    static boolean accept(Schema schema, boolean scoped, JsonPathVisitor visitor) {
+        if (schema == null || schema instanceof ValueSchema)
+            return true;
+        if (schema instanceof JsonPathSchema)
+            return acceptJsonPath((JsonPathSchema) schema, scoped, visitor);
+        if (schema instanceof FunctionSchema)
+            return acceptAll(((FunctionSchema) schema).getArguments(), scoped, visitor);
+        if (schema instanceof RawSchema)
+            return acceptInlineString(((RawSchema) schema).getRaw(), scoped, visitor);
+        if (schema instanceof ObjectSchema) {
+            ObjectSchema objectSchema = (ObjectSchema) schema;
+            if (!accept(objectSchema.getObjectSchema(), scoped, visitor))
+                return false;
+            return acceptProperties(objectSchema, scoped || objectSchema.getObjectSchema() != null, visitor);
+        }
+        if (schema instanceof ListSchema) {
+            for (Schema item : ((ListSchema) schema).getItems()) {
+                if (item instanceof ObjectSchema) {
+                    ObjectSchema objectSchema = (ObjectSchema) item;
+                    if (!accept(objectSchema.getArraySchema(), scoped, visitor)
+                            || !accept(objectSchema.getObjectSchema(), true, visitor)
+                            || !acceptProperties(objectSchema, true, visitor))
+                        return false;
+                } else if (!accept(item, scoped, visitor))
+                    return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static boolean acceptAll(Collection<Schema> schemas, boolean scoped, JsonPathVisitor visitor) {
+        for (Schema schema : schemas) {
+            if (!accept(schema, scoped, visitor))
+                return false;
+        }
+        return true;
+    }
+
+    static boolean acceptProperties(ObjectSchema schema, boolean scoped, JsonPathVisitor visitor) {
+        for (ObjectSchema.Property property : schema.getProperties()) {
+            if (property.hasInlineVariable() && !acceptInlineString(property.getInlineKey(), scoped, visitor))
+                return false;
+            if (!accept(property.getValue(), scoped, visitor))
+                return false;
+        }
+        return true;
+    }
+
+    static boolean acceptInlineString(InlineString str, boolean scoped, JsonPathVisitor visitor) {
+        for (Object segment : str.getSegments()) {
+            if (segment instanceof Schema && !accept((Schema) segment, scoped, visitor))
+                return false;
+        }
+        return true;
+    }
+
+    static boolean acceptJsonPath(JsonPathSchema schema, boolean scoped, JsonPathVisitor visitor) {
+        String path;
+        boolean complete;
+        if (schema.hasInlineVariable()) {
+            if (!acceptInlineString(schema.getInlinePath(), scoped, visitor))
+                return false;
+            Object segment = schema.getInlinePath().getSegments().get(0);
+            if (!(segment instanceof String))
+                return false;
+            path = (String) segment;
+            complete = false;
+        } else {
+            path = schema.getPath();
+            complete = true;
+        }
+
+        if (path.startsWith("$$"))
+            path = path.substring(1);
+        else if (scoped)
+            return true;
+        return visitor.visit(path, complete);
+    }
+
+}
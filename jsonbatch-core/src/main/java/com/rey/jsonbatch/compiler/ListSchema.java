@@ -0,0 +1,23 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ListSchema extends Schema {
+
+    private final List<Schema> items;
+
+    private ListSchema(Object source, List<Schema> items) {
+        super(source);
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public List<Schema> getItems() {
+        return items;
+    }
+
+    public static ListSchema of(Object source, List<Schema> items) {
+        return new ListSchema(source, items);
+    }
+
+}
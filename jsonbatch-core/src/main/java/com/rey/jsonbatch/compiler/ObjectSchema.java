@@ -0,0 +1,69 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ObjectSchema extends Schema {
+
+    private final Schema objectSchema;
+    private final Schema arraySchema;
+    private final List<Property> properties;
+
+    private ObjectSchema(Object source, Schema objectSchema, Schema arraySchema, List<Property> properties) {
+        super(source);
+        this.objectSchema = objectSchema;
+        this.arraySchema = arraySchema;
+        this.properties = Collections.unmodifiableList(properties);
+    }
+
+    public Schema getObjectSchema() {
+        return objectSchema;
+    }
+
+    public Schema getArraySchema() {
+        return arraySchema;
+    }
+
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    public static ObjectSchema of(Object source, Schema objectSchema, Schema arraySchema, List<Property> properties) {
+        return new ObjectSchema(source, objectSchema, arraySchema, properties);
+    }
+
+    public static class Property {
+
+        private final String key;
+        private final InlineString inlineKey;
+        private final Schema value;
+
+        private Property(String key, InlineString inlineKey, Schema value) {
+            this.key = key;
+            this.inlineKey = inlineKey;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean hasInlineVariable() {
+            return inlineKey != null;
+        }
+
+        public InlineString getInlineKey() {
+            return inlineKey;
+        }
+
+        public Schema getValue() {
+            return value;
+        }
+
+        public static Property of(String key, InlineString inlineKey, Schema value) {
+            return new Property(key, inlineKey, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.rey.jsonbatch.compiler;
+
+public class RawSchema extends Schema {
+
+    private final InlineString raw;
+
+    private RawSchema(Object source, InlineString raw) {
+        super(source);
+        this.raw = raw;
+    }
+
+    public InlineString getRaw() {
+        return raw;
+    }
+
+    public static RawSchema of(Object source, InlineString raw) {
+        return new RawSchema(source, raw);
+    }
+
+}
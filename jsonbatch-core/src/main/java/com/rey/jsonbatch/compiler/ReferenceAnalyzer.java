@@ -0,0 +1,105 @@
+package com.rey.jsonbatch.compiler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ReferenceAnalyzer {
+
+    private static final Pattern PATTERN_RESPONSES = Pattern.compile("^\\$(?:\\.responses|\\['responses'\\])(?=[.\\[]|$)");
+    private static final Pattern PATTERN_ROOT_PROPERTY = Pattern.compile("^\\$(?:\\.\\w+|\\['[^']*'\\])");
+    private static final Pattern PATTERN_STRUCTURE = Pattern.compile("^(?:\\[(?:-?\\d+|\\*|-?\\d*:-?\\d*)\\]|\\.(?:times|branches)|\\['(?:times|branches)'\\])");
+    private static final Pattern PATTERN_FIELD = Pattern.compile("^(?:\\.(?:status|headers|body)|\\['(?:status|headers|body)'\\])(?=[.\\[]|$)");
+    private static final Pattern PATTERN_SUMMARY = Pattern.compile("^(?:\\.\\w+\\(\\)$|\\.accumulators(?=[.\\[]|$)|\\['accumulators'\\])");
+    private static final Pattern PATTERN_FUNCTION = Pattern.compile("\\.\\w+\\(\\)$");
+
+    public List<String> analyzeResponsePaths(List<CompiledRequestTemplate> requests, List<CompiledResponseTemplate> responses, boolean compactResult) {
+        Set<String> paths = new LinkedHashSet<>();
+        if (compactResult)
+            paths.add("$.status");
+        else if (responses.stream().noneMatch(response -> response.getPredicate() == null))
+            return null;
+        if (!collectResponses(responses, paths) || !collectRequests(requests, paths))
+            return null;
+        return new ArrayList<>(paths);
+    }
+
+    private boolean collectRequests(List<CompiledRequestTemplate> templates, Set<String> paths) {
+        for (CompiledRequestTemplate template : templates) {
+            if (!collect(paths, template.getPredicate(), template.getHttpMethod(), template.getUrl(), template.getHeaders(), template.getBody())
+                    || !collectResponses(template.getResponses(), paths)
+                    || !collectRequests(template.getRequests(), paths))
+                return false;
+            for (CompiledVarTemplate varTemplate : template.getVars()) {
+                if (!collect(paths, varTemplate.getPredicate(), varTemplate.getVars()))
+                    return false;
+            }
+            CompiledLoopTemplate loop = template.getLoop();
+            if (loop != null) {
+                if (loop.getStream() != null
+                        || !collect(paths, loop.getCounterInit(), loop.getCounterPredicate(), loop.getCounterUpdate())
+                        || !collectRequests(loop.getRequests(), paths))
+                    return false;
+                for (CompiledAccumulatorTemplate accumulator : loop.getAccumulators()) {
+                    if (!collect(paths, accumulator.getValue()))
+                        return false;
+                }
+            }
+            if (template.getParallel() != null && !collectRequests(template.getParallel().getRequests(), paths))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean collectResponses(List<CompiledResponseTemplate> templates, Set<String> paths) {
+        for (CompiledResponseTemplate template : templates) {
+            if (!collect(paths, template.getPredicate(), template.getStatus(), template.getHeaders(), template.getBody()))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean collect(Set<String> paths, Schema... schemas) {
+        for (Schema schema : schemas) {
+            if (!JsonPathVisitor.accept(schema, (path, complete) -> collect(path, complete, paths)))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean collect(String path, boolean complete, Set<String> paths) {
+        if (!complete) {
+            int index = Math.max(path.lastIndexOf('.'), path.lastIndexOf('['));
+            if (!path.endsWith("]") && index > 0)
+                path = path.substring(0, index);
+        }
+        Matcher matcher = PATTERN_RESPONSES.matcher(path);
+        if (!matcher.find())
+            return PATTERN_ROOT_PROPERTY.matcher(path).find();
+
+        String rest = path.substring(matcher.end());
+        while (true) {
+            matcher = PATTERN_STRUCTURE.matcher(rest);
+            if (!matcher.find())
+                break;
+            rest = rest.substring(matcher.end());
+        }
+        if (PATTERN_SUMMARY.matcher(rest).find())
+            return true;
+        if (!PATTERN_FIELD.matcher(rest).find())
+            return false;
+
+        int index = rest.indexOf("[?");
+        if (index >= 0)
+            rest = rest.substring(0, index);
+        index = rest.indexOf("..");
+        if (index >= 0)
+            rest = rest.substring(0, index);
+        paths.add("$" + PATTERN_FUNCTION.matcher(rest).replaceFirst(""));
+        return true;
+    }
+
+}
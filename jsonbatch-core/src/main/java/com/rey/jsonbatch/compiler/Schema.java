@@ -0,0 +1,20 @@
+package com.rey.jsonbatch.compiler;
+
+public abstract class Schema {
+
+    private final Object source;
+
+    protected Schema(Object source) {
+        this.source = source;
+    }
+
+    public Object getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(source);
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.rey.jsonbatch.compiler;
+
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.model.AccumulatorTemplate;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.LoopOptions;
+import com.rey.jsonbatch.model.LoopTemplate;
+import com.rey.jsonbatch.model.ParallelTemplate;
+import com.rey.jsonbatch.model.RequestTemplate;
+import com.rey.jsonbatch.model.ResponseTemplate;
+import com.rey.jsonbatch.model.RetentionOptions;
+import com.rey.jsonbatch.model.VarTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TemplateCompiler {
+
+    private Logger logger = LoggerFactory.getLogger(TemplateCompiler.class);
+
+    private static final String BODY_PATH = "$['body']";
+
+    private JsonBuilder jsonBuilder;
+
+    private DependencyAnalyzer dependencyAnalyzer = new DependencyAnalyzer();
+
+    private ReferenceAnalyzer referenceAnalyzer = new ReferenceAnalyzer();
+
+    public TemplateCompiler(JsonBuilder jsonBuilder) {
+        this.jsonBuilder = jsonBuilder;
+    }
+
+    public CompiledBatchTemplate compile(BatchTemplate template) {
+        logger.info("Start compiling batch template");
+        List<CompiledRequestTemplate> requests = compileRequests(template.getRequests());
+        List<CompiledResponseTemplate> responses = compileResponses(template.getResponses());
+        CompiledRetentionOptions retentionOptions = template.getRetentionOptions() == null ? CompiledRetentionOptions.defaultOptions() : compileRetention(template.getRetentionOptions());
+        List<String> responsePaths = referenceAnalyzer.analyzeResponsePaths(requests, responses, retentionOptions.isCompactResult());
+        if (responsePaths == null)
+            logger.info("Response bodies are fully referenced");
+        else
+            logger.info("Response bodies are referenced by [{}] paths", responsePaths);
+        List<JsonPath> compiledResponsePaths = responsePaths == null ? null : responsePaths.stream().map(jsonBuilder.getJsonPathCache()::get).collect(Collectors.toList());
+        DispatchOptions dispatchOptions = template.getDispatchOptions() == null ? new DispatchOptions() : template.getDispatchOptions();
+        CompiledBatchTemplate compiledTemplate = new CompiledBatchTemplate(
+                requests,
+                responses,
+                dispatchOptions,
+                template.getLoopOptions() == null ? new LoopOptions() : template.getLoopOptions(),
+                retentionOptions,
+                compiledResponsePaths,
+                compileProjection(dispatchOptions, compiledResponsePaths),
+                compileDiscarding(dispatchOptions));
+        logger.info("Done compiling batch template");
+        return compiledTemplate;
+    }
+
+    private DispatchOptions compileProjection(DispatchOptions dispatchOptions, List<JsonPath> responsePaths) {
+        if (responsePaths == null || dispatchOptions.getProjection() != null || dispatchOptions.getDiscardBody())
+            return null;
+        List<String> projection = new ArrayList<>();
+        for (JsonPath responsePath : responsePaths) {
+            String path = responsePath.getPath();
+            if (path.equals(BODY_PATH))
+                return null;
+            if (path.startsWith(BODY_PATH))
+                projection.add("$" + path.substring(BODY_PATH.length()));
+        }
+        if (projection.isEmpty()) {
+            logger.info("Response bodies are never referenced");
+            return compileDiscarding(dispatchOptions);
+        }
+        logger.info("Response bodies are projected to [{}] paths", projection);
+        DispatchOptions result = copyDispatchOptions(dispatchOptions);
+        result.setProjection(projection);
+        return result;
+    }
+
+    private DispatchOptions compileDiscarding(DispatchOptions dispatchOptions) {
+        DispatchOptions result = copyDispatchOptions(dispatchOptions);
+        result.setDiscardBody(true);
+        return result;
+    }
+
+    private DispatchOptions copyDispatchOptions(DispatchOptions dispatchOptions) {
+        DispatchOptions result = new DispatchOptions();
+        result.setFailBackAsString(dispatchOptions.getFailBackAsString());
+        result.setIgnoreParsingError(dispatchOptions.getIgnoreParsingError());
+        result.setProjection(dispatchOptions.getProjection());
+        result.setDiscardBody(dispatchOptions.getDiscardBody());
+        return result;
+    }
+
+    private List<CompiledRequestTemplate> compileRequests(List<RequestTemplate> templates) {
+        List<CompiledRequestTemplate> result = new ArrayList<>();
+        if (templates != null)
+            templates.forEach(template -> result.add(compileRequest(template)));
+        return result;
+    }
+
+    private CompiledRequestTemplate compileRequest(RequestTemplate template) {
+        Schema predicate = compileSchema(template.getPredicate());
+        Schema httpMethod = compileSchema(template.getHttpMethod());
+        Schema url = compileSchema(template.getUrl());
+        Schema headers = compileSchema(template.getHeaders());
+        Schema body = compileSchema(template.getBody());
+        List<CompiledVarTemplate> vars = compileVars(template.getVars());
+        return new CompiledRequestTemplate(
+                predicate,
+                httpMethod,
+                url,
+                headers,
+                body,
+                compileRequests(template.getRequests()),
+                compileResponses(template.getResponses()),
+                compileLoop(template.getLoop()),
+                compileParallel(template.getParallel()),
+                compileResponses(template.getTransformers()),
+                vars,
+                template.getRetention() == null ? null : compileRetention(template.getRetention()),
+                dependencyAnalyzer.analyze(predicate),
+                dependencyAnalyzer.analyze(httpMethod, url, headers, body),
+                dependencyAnalyzer.analyzeVarNames(vars));
+    }
+
+    private List<CompiledResponseTemplate> compileResponses(List<ResponseTemplate> templates) {
+        List<CompiledResponseTemplate> result = new ArrayList<>();
+        if (templates != null)
+            templates.forEach(template -> result.add(new CompiledResponseTemplate(
+                    compileSchema(template.getPredicate()),
+                    compileSchema(template.getStatus()),
+                    compileSchema(template.getHeaders()),
+                    compileSchema(template.getBody()))));
+        return result;
+    }
+
+    private CompiledLoopTemplate compileLoop(LoopTemplate template) {
+        if (template == null)
+            return null;
+        if (template.getStream() != null && template.getConcurrency() != null && template.getConcurrency() > 1)
+            throw new IllegalArgumentException("Loop with concurrency can not be streamed: " + template.getStream());
+        return new CompiledLoopTemplate(
+                compileSchema(template.getCounterInit()),
+                compileSchema(template.getCounterPredicate()),
+                compileSchema(template.getCounterUpdate()),
+                compileRequests(template.getRequests()),
+                template.getConcurrency() == null ? 1 : template.getConcurrency(),
+                template.getPrefetch() == null ? 0 : template.getPrefetch(),
+                template.getStream(),
+                compileAccumulators(template.getAccumulators()),
+                template.getRetainTimes() == null || template.getRetainTimes());
+    }
+
+    private CompiledRetentionOptions compileRetention(RetentionOptions options) {
+        CompiledRetentionOptions.Policy policy;
+        try {
+            policy = options.getPolicy() == null ? CompiledRetentionOptions.Policy.ALL : CompiledRetentionOptions.Policy.valueOf(options.getPolicy().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Not support retention policy: " + options.getPolicy());
+        }
+        List<JsonPath> paths = new ArrayList<>();
+        if (options.getPaths() != null)
+            options.getPaths().forEach(path -> paths.add(jsonBuilder.getJsonPathCache().get(path)));
+        if (policy == CompiledRetentionOptions.Policy.PATHS && paths.isEmpty())
+            throw new IllegalArgumentException("Missing paths for paths retention policy");
+        return new CompiledRetentionOptions(policy, paths, options.getCompactResult() != null && options.getCompactResult());
+    }
+
+    private List<CompiledAccumulatorTemplate> compileAccumulators(List<AccumulatorTemplate> templates) {
+        List<CompiledAccumulatorTemplate> result = new ArrayList<>();
+        if (templates != null)
+            templates.forEach(template -> {
+                if (template.getName() == null)
+                    throw new IllegalArgumentException("Missing accumulator name");
+                CompiledAccumulatorTemplate.Operation operation;
+                try {
+                    operation = CompiledAccumulatorTemplate.Operation.valueOf(String.valueOf(template.getType()).toUpperCase());
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Not support accumulator type: " + template.getType());
+                }
+                result.add(new CompiledAccumulatorTemplate(template.getName(), operation, compileSchema(template.getValue())));
+            });
+        return result;
+    }
+
+    private CompiledParallelTemplate compileParallel(ParallelTemplate template) {
+        if (template == null)
+            return null;
+        return new CompiledParallelTemplate(
+                compileRequests(template.getRequests()),
+                template.getMaxConcurrency() == null ? 0 : template.getMaxConcurrency());
+    }
+
+    private List<CompiledVarTemplate> compileVars(List<VarTemplate> templates) {
+        List<CompiledVarTemplate> result = new ArrayList<>();
+        if (templates != null)
+            templates.forEach(template -> result.add(new CompiledVarTemplate(
+                    compileSchema(template.getPredicate()),
+                    compileSchema(template.getVars()))));
+        return result;
+    }
+
+    private Schema compileSchema(Object schema) {
+        return schema == null ? null : jsonBuilder.compile(schema);
+    }
+
+}
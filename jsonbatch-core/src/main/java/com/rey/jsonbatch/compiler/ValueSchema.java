@@ -0,0 +1,17 @@
+package com.rey.jsonbatch.compiler;
+
+public class ValueSchema extends Schema {
+
+    private ValueSchema(Object value) {
+        super(value);
+    }
+
+    public Object getValue() {
+        return getSource();
+    }
+
+    public static ValueSchema of(Object value) {
+        return new ValueSchema(value);
+    }
+
+}
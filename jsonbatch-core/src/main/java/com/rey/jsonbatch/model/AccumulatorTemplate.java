@@ -0,0 +1,35 @@
+package com.rey.jsonbatch.model;
+
+public class AccumulatorTemplate {
+
+    private String name;
+
+    private String type;
+
+    private Object value;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+}
@@ -12,6 +12,8 @@ public class BatchTemplate {
 
     private LoopOptions loopOptions;
 
+    private RetentionOptions retentionOptions;
+
     public List<RequestTemplate> getRequests() {
         return requests;
     }
@@ -43,4 +45,12 @@ public class BatchTemplate {
     public void setLoopOptions(LoopOptions loopOptions) {
         this.loopOptions = loopOptions;
     }
+
+    public RetentionOptions getRetentionOptions() {
+        return retentionOptions;
+    }
+
+    public void setRetentionOptions(RetentionOptions retentionOptions) {
+        this.retentionOptions = retentionOptions;
+    }
 }
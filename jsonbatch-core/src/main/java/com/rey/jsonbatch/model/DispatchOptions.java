@@ -1,11 +1,17 @@
 package com.rey.jsonbatch.model;
 
+import java.util.List;
+
 public class DispatchOptions {
 
     private Boolean failBackAsString = false;
 
     private Boolean ignoreParsingError = false;
 
+    private List<String> projection;
+
+    private Boolean discardBody = false;
+
     public Boolean getFailBackAsString() {
         return failBackAsString;
     }
@@ -22,4 +28,20 @@ public class DispatchOptions {
         this.ignoreParsingError = ignoreParsingError;
     }
 
+    public List<String> getProjection() {
+        return projection;
+    }
+
+    public void setProjection(List<String> projection) {
+        this.projection = projection;
+    }
+
+    public Boolean getDiscardBody() {
+        return discardBody;
+    }
+
+    public void setDiscardBody(Boolean discardBody) {
+        this.discardBody = discardBody;
+    }
+
 }
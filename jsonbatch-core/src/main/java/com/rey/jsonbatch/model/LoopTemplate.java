@@ -12,6 +12,16 @@ public class LoopTemplate {
 
     private List<RequestTemplate> requests;
 
+    private Integer concurrency;
+
+    private Integer prefetch;
+
+    private String stream;
+
+    private List<AccumulatorTemplate> accumulators;
+
+    private Boolean retainTimes;
+
     public Object getCounterInit() {
         return counterInit;
     }
@@ -43,4 +53,44 @@ public class LoopTemplate {
     public void setRequests(List<RequestTemplate> requests) {
         this.requests = requests;
     }
+
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(Integer concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Integer getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(Integer prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public void setStream(String stream) {
+        this.stream = stream;
+    }
+
+    public List<AccumulatorTemplate> getAccumulators() {
+        return accumulators;
+    }
+
+    public void setAccumulators(List<AccumulatorTemplate> accumulators) {
+        this.accumulators = accumulators;
+    }
+
+    public Boolean getRetainTimes() {
+        return retainTimes;
+    }
+
+    public void setRetainTimes(Boolean retainTimes) {
+        this.retainTimes = retainTimes;
+    }
 }
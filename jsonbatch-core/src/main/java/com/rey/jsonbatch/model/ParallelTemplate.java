@@ -0,0 +1,26 @@
+package com.rey.jsonbatch.model;
+
+import java.util.List;
+
+public class ParallelTemplate {
+
+    private List<RequestTemplate> requests;
+
+    private Integer maxConcurrency;
+
+    public List<RequestTemplate> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<RequestTemplate> requests) {
+        this.requests = requests;
+    }
+
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+}
@@ -14,6 +14,8 @@ public class Request {
 
     private Object body;
 
+    private byte[] encodedBody;
+
     public String getHttpMethod() {
         return httpMethod;
     }
@@ -46,6 +48,14 @@ public class Request {
         this.body = body;
     }
 
+    public byte[] getEncodedBody() {
+        return encodedBody;
+    }
+
+    public void setEncodedBody(byte[] encodedBody) {
+        this.encodedBody = encodedBody;
+    }
+
     public Map<String, Object> toMap() {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("http_method", httpMethod);
@@ -21,10 +21,14 @@ public class RequestTemplate {
 
     private LoopTemplate loop;
 
+    private ParallelTemplate parallel;
+
     private List<ResponseTemplate> transformers;
 
     private List<VarTemplate> vars;
 
+    private RetentionOptions retention;
+
     public String getPredicate() {
         return predicate;
     }
@@ -89,6 +93,14 @@ public class RequestTemplate {
         this.loop = loop;
     }
 
+    public ParallelTemplate getParallel() {
+        return parallel;
+    }
+
+    public void setParallel(ParallelTemplate parallel) {
+        this.parallel = parallel;
+    }
+
     public List<ResponseTemplate> getTransformers() {
         return transformers;
     }
@@ -104,4 +116,12 @@ public class RequestTemplate {
     public void setVars(List<VarTemplate> vars) {
         this.vars = vars;
     }
+
+    public RetentionOptions getRetention() {
+        return retention;
+    }
+
+    public void setRetention(RetentionOptions retention) {
+        this.retention = retention;
+    }
 }
@@ -0,0 +1,37 @@
+package com.rey.jsonbatch.model;
+
+import java.util.List;
+
+public class RetentionOptions {
+
+    private String policy;
+
+    private List<String> paths;
+
+    private Boolean compactResult;
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public Boolean getCompactResult() {
+        return compactResult;
+    }
+
+    public void setCompactResult(Boolean compactResult) {
+        this.compactResult = compactResult;
+    }
+
+}
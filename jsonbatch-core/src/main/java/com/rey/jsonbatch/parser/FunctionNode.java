@@ -0,0 +1,53 @@
+package com.rey.jsonbatch.parser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public class FunctionNode extends Node {
+
+    private final String name;
+    private final List<Node> arguments;
+
+    private FunctionNode(String name, List<Node> arguments) {
+        this.name = name;
+        this.arguments = Collections.unmodifiableList(arguments);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Node> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FunctionNode that = (FunctionNode) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(arguments, that.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "Function{" + name + arguments + '}';
+    }
+
+    public static FunctionNode of(String name, List<Node> arguments) {
+        return new FunctionNode(name, arguments);
+    }
+
+    public static FunctionNode of(String name, Node... arguments) {
+        return new FunctionNode(name, Arrays.asList(arguments));
+    }
+
+}
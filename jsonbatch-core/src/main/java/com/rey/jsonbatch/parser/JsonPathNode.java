@@ -0,0 +1,39 @@
+package com.rey.jsonbatch.parser;
+
+import java.util.Objects;
+
+public class JsonPathNode extends Node {
+
+    private final String path;
+
+    private JsonPathNode(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JsonPathNode that = (JsonPathNode) o;
+        return Objects.equals(path, that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path);
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPath{" + path + '}';
+    }
+
+    public static JsonPathNode of(String path) {
+        return new JsonPathNode(path);
+    }
+
+}
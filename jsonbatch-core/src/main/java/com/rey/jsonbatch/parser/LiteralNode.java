@@ -0,0 +1,39 @@
+package com.rey.jsonbatch.parser;
+
+import java.util.Objects;
+
+public class LiteralNode extends Node {
+
+    private final String value;
+
+    private LiteralNode(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LiteralNode that = (LiteralNode) o;
+        return Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return "Literal{" + value + '}';
+    }
+
+    public static LiteralNode of(String value) {
+        return new LiteralNode(value);
+    }
+
+}
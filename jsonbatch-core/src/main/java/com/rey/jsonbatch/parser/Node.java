@@ -0,0 +1,5 @@
+package com.rey.jsonbatch.parser;
+
+public abstract class Node {
+
+}
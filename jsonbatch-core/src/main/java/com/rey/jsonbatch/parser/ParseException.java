@@ -0,0 +1,16 @@
+package com.rey.jsonbatch.parser;
+
+public class ParseException extends IllegalArgumentException {
+
+    private final int position;
+
+    public ParseException(String message, int position) {
+        super(message + " at position " + position);
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+}
@@ -2,116 +2,161 @@ package com.rey.jsonbatch.parser;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Parser {
 
     private static final String PREFIX_JSON_PATH = "$";
     private static final String PREFIX_FUNC = "__";
 
-    private static final String CHAR_ESCAPE = "\\";
-    private static final String CHAR_QUOTE = "\"";
-    private static final String CHAR_COMMA = ",";
-    private static final String CHAR_CLOSE_BRACKET = ")";
-
-    private static final Pattern PATTERN_FUNC = Pattern.compile("^__(\\w*)\\((.*$)");
-
-    public List<TokenValue> parse(String str) {
-        List<TokenValue> result = new ArrayList<>();
-        str = str.trim();
-        if(str.startsWith(PREFIX_JSON_PATH))
-            result.add(TokenValue.of(Token.JSON_PATH, str));
-        else if(str.startsWith(PREFIX_FUNC))
-            parseFunction(result, str);
-        else
-            result.add(TokenValue.of(Token.RAW, str));
-        return result;
+    private static final char CHAR_ESCAPE = '\\';
+    private static final char CHAR_QUOTE = '"';
+    private static final char CHAR_COMMA = ',';
+    private static final char CHAR_OPEN_BRACKET = '(';
+    private static final char CHAR_CLOSE_BRACKET = ')';
+
+    public Node parse(CharSequence input) {
+        int start = skipWhitespace(input, 0, input.length());
+        int end = input.length();
+        while (end > start && isWhitespace(input.charAt(end - 1)))
+            end--;
+
+        if (startsWith(input, start, end, PREFIX_JSON_PATH))
+            return JsonPathNode.of(input.subSequence(start, end).toString());
+        if (startsWith(input, start, end, PREFIX_FUNC))
+            return parseFunction(new Cursor(input, start, end));
+        return LiteralNode.of(input.subSequence(start, end).toString());
     }
 
-    private String parseFunction(List<TokenValue> values, String str) {
-        Matcher matcher = PATTERN_FUNC.matcher(str);
-        if(!matcher.matches()) {
-            throw new IllegalArgumentException("Invalid format");
-        }
+    private FunctionNode parseFunction(Cursor cursor) {
+        cursor.position += PREFIX_FUNC.length();
+        int nameStart = cursor.position;
+        while (cursor.position < cursor.end && isWordChar(cursor.current()))
+            cursor.position++;
+        String name = cursor.input.subSequence(nameStart, cursor.position).toString();
+
+        if (cursor.position >= cursor.end || cursor.current() != CHAR_OPEN_BRACKET)
+            throw new ParseException("Invalid format: expect '(' character after function name", cursor.position);
+        cursor.position++;
+        cursor.skipWhitespace();
 
-        values.add(TokenValue.of(Token.FUNC, matcher.group(1)));
-        str = parseArguments(values, matcher.group(2).trim());
-        return str.trim();
+        List<Node> arguments = new ArrayList<>();
+        parseArguments(cursor, arguments);
+        return FunctionNode.of(name, arguments);
     }
 
-    private String parseArguments(List<TokenValue> values, String str) {
+    private void parseArguments(Cursor cursor, List<Node> arguments) {
         boolean hasClose = false;
-        while(!str.isEmpty() && !hasClose) {
-            if(str.startsWith(CHAR_QUOTE))
-                str = parseStringArgument(values, str.substring(1));
-            else if(str.startsWith(PREFIX_FUNC))
-                str = parseFunction(values, str);
+        while (cursor.position < cursor.end && !hasClose) {
+            if (cursor.current() == CHAR_QUOTE)
+                arguments.add(parseStringArgument(cursor));
+            else if (startsWith(cursor.input, cursor.position, cursor.end, PREFIX_FUNC))
+                arguments.add(parseFunction(cursor));
             else
-                str = parseRawArgument(values, str);
+                arguments.add(parseRawArgument(cursor));
 
-            if(str.startsWith(CHAR_COMMA))
-                str = str.substring(1).trim();
-            if(str.startsWith(CHAR_CLOSE_BRACKET)) {
-                values.add(TokenValue.of(Token.END_FUNC));
-                str = str.substring(1).trim();
+            if (cursor.position < cursor.end && cursor.current() == CHAR_COMMA) {
+                cursor.position++;
+                cursor.skipWhitespace();
+            }
+            if (cursor.position < cursor.end && cursor.current() == CHAR_CLOSE_BRACKET) {
+                cursor.position++;
+                cursor.skipWhitespace();
                 hasClose = true;
             }
         }
-        if(!hasClose) {
-            throw new IllegalArgumentException(("Expect ')' character but not found"));
-        }
-        return str.trim();
+        if (!hasClose)
+            throw new ParseException("Expect ')' character but not found", cursor.position);
     }
 
-    private String parseStringArgument(List<TokenValue> values, String str) {
-        int i;
-        StringBuilder builder = new StringBuilder();
-        for(i = 0; i < str.length(); i++) {
-            if(str.charAt(i) == CHAR_QUOTE.charAt(0)) {
-                if(isEscapedQuote(builder))
-                    builder.append(str.charAt(i));
-                else
-                    break;
-            }
-            else
-                builder.append(str.charAt(i));
+    private Node parseStringArgument(Cursor cursor) {
+        int quotePosition = cursor.position;
+        int start = quotePosition + 1;
+        int i = start;
+        while (i < cursor.end) {
+            if (cursor.input.charAt(i) == CHAR_QUOTE && !isEscaped(cursor.input, start, i))
+                break;
+            i++;
         }
-        if(i < str.length()) {
-            String value = builder.toString();
-            Token token = str.startsWith(PREFIX_JSON_PATH) ? Token.JSON_PATH : Token.RAW;
-            values.add(TokenValue.of(token, token == Token.JSON_PATH ? value.trim() : value));
-            return str.substring(i + 1).trim();
+        if (i >= cursor.end)
+            throw new ParseException("Expect '\"' character but not found", quotePosition);
+
+        cursor.position = i + 1;
+        cursor.skipWhitespace();
+        if (startsWith(cursor.input, start, i, PREFIX_JSON_PATH)) {
+            int end = i;
+            while (end > start && isWhitespace(cursor.input.charAt(end - 1)))
+                end--;
+            return JsonPathNode.of(cursor.input.subSequence(start, end).toString());
         }
-        throw new IllegalArgumentException(("Expect '\"' character but not found"));
+        return LiteralNode.of(cursor.input.subSequence(start, i).toString());
+    }
+
+    private Node parseRawArgument(Cursor cursor) {
+        int start = cursor.position;
+        int i = start;
+        while (i < cursor.end && cursor.input.charAt(i) != CHAR_COMMA && cursor.input.charAt(i) != CHAR_CLOSE_BRACKET)
+            i++;
+        if (i >= cursor.end)
+            throw new ParseException("Expect ',' or ')' character but not found", start);
+
+        cursor.position = i;
+        int end = i;
+        while (end > start && isWhitespace(cursor.input.charAt(end - 1)))
+            end--;
+        return LiteralNode.of(cursor.input.subSequence(start, end).toString());
+    }
+
+    private boolean isEscaped(CharSequence input, int start, int index) {
+        int count = 0;
+        for (int i = index - 1; i >= start && input.charAt(i) == CHAR_ESCAPE; i--)
+            count++;
+        return count % 2 == 1;
     }
 
-    private boolean isEscapedQuote(StringBuilder builder) {
-        int size = builder.length();
-        if(size == 0)
+    private static boolean startsWith(CharSequence input, int start, int end, String prefix) {
+        if (end - start < prefix.length())
             return false;
-        int i = builder.length() - 1;
-        while(i >= 0) {
-            if(builder.charAt(i) != CHAR_ESCAPE.charAt(0))
-                break;
-            i --;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (input.charAt(start + i) != prefix.charAt(i))
+                return false;
         }
-        return (builder.length() - i) % 2 == 0;
+        return true;
     }
 
-    private String parseRawArgument(List<TokenValue> values, String str) {
-        int i;
-        for(i = 0; i < str.length(); i++) {
-            if(str.charAt(i) == CHAR_COMMA.charAt(0) || str.charAt(i) == CHAR_CLOSE_BRACKET.charAt(0)) {
-                break;
-            }
+    private static int skipWhitespace(CharSequence input, int position, int end) {
+        while (position < end && isWhitespace(input.charAt(position)))
+            position++;
+        return position;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c <= ' ';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static class Cursor {
+
+        final CharSequence input;
+        final int end;
+        int position;
+
+        Cursor(CharSequence input, int position, int end) {
+            this.input = input;
+            this.position = position;
+            this.end = end;
         }
-        if(i < str.length()) {
-            String value = str.substring(0, i).trim();
-            values.add(TokenValue.of(Token.RAW, value));
-            return str.substring(i).trim();
+
+        char current() {
+            return input.charAt(position);
         }
-        throw new IllegalArgumentException(("Expect ',' or ')' character but not found"));
+
+        void skipWhitespace() {
+            position = Parser.skipWhitespace(input, position, end);
+        }
+
     }
 
 }
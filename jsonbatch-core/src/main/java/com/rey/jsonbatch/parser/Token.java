@@ -1,8 +0,0 @@
-package com.rey.jsonbatch.parser;
-
-public enum Token {
-    JSON_PATH,
-    FUNC,
-    RAW,
-    END_FUNC
-}
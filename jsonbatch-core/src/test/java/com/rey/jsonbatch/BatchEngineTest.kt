@@ -13,12 +13,20 @@ import com.rey.jsonbatch.model.BatchTemplate
 import com.rey.jsonbatch.model.DispatchOptions
 import com.rey.jsonbatch.model.Request
 import com.rey.jsonbatch.model.Response
+import com.rey.jsonbatch.model.ResponseTemplate
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.mockito.ArgumentMatchers.any
 import org.mockito.Mockito.doReturn
+import org.mockito.Mockito.doThrow
 import org.mockito.Mockito.mock
+import java.io.IOException
+import java.util.ArrayDeque
+import java.util.concurrent.CompletableFuture
 
 class BatchEngineTest {
 
@@ -370,6 +378,835 @@ class BatchEngineTest {
         assertEquals("a", context.read("$.var_2", String::class.java))
     }
 
+    @Test
+    fun execute__withCompiledTemplate() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/@{$.original.body.id}@",
+                        "body": null
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "url": "$.requests[0].url",
+                            "key": "$.responses[0].body.key"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "headers": {},
+                "body": {
+                    "key": "a"
+                }
+            }
+        """.toObj(Response::class.java)
+
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+        val compiledTemplate = batchEngine.compile(template)
+        for (id in 1..3) {
+            val originalRequest = """{ "body": { "id": $id } }""".toObj(Request::class.java)
+            val finalResponse = batchEngine.execute(originalRequest, compiledTemplate)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertEquals("https://test.com/$id", context.read("$.url", String::class.java))
+            assertEquals("a", context.read("$.key", String::class.java))
+        }
+    }
+
+    @Test
+    fun executeAsync__withAsyncDispatcher() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 3\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[0].times[*][0].body.url"
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val pendingFutures = ArrayDeque<Pair<Request, CompletableFuture<Response>>>()
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            val future = CompletableFuture<Response>()
+            pendingFutures.add(request to future)
+            future
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+
+        val future = engine.executeAsync(Request(), template)
+        for (i in 0..2) {
+            assertFalse(future.isDone)
+            val (request, pendingFuture) = pendingFutures.removeFirst()
+            assertEquals("https://localhost.com/$i", request.url)
+            pendingFuture.complete("""{ "headers": {}, "body": { "url": "${request.url}" } }""".toObj(Response::class.java))
+        }
+
+        assertTrue(future.isDone)
+        assertTrue(pendingFutures.isEmpty())
+        assertArray(future.get().body as List<Any>, "https://localhost.com/0", "https://localhost.com/1", "https://localhost.com/2")
+    }
+
+    @Test
+    fun executeAsync__withParallelRequests() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "parallel": {
+                            "max_concurrency": 2,
+                            "requests": [
+                                { "http_method": "GET", "url": "https://localhost.com/user", "body": null },
+                                { "http_method": "GET", "url": "https://localhost.com/orders", "body": null },
+                                { "predicate": "__cmp(\"1 > 2\")", "http_method": "GET", "url": "https://localhost.com/skip", "body": null },
+                                { "http_method": "GET", "url": "https://localhost.com/preferences", "body": null }
+                            ]
+                        },
+                        "requests": [
+                            {
+                                "http_method": "POST",
+                                "url": "https://localhost.com/summary",
+                                "body": "$.responses[0].branches[*][0].body.url"
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "branches": "$.responses[0].branches[*][*].body.url",
+                            "skipped": "$.requests[0].branches[2].length()",
+                            "summary": "$.responses[1].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val future = engine.executeAsync(Request(), template)
+        assertEquals(setOf("https://localhost.com/user", "https://localhost.com/orders"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/orders")
+        assertEquals(setOf("https://localhost.com/user", "https://localhost.com/preferences"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/preferences")
+        dispatcher.complete("https://localhost.com/user")
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/summary")
+
+        val context = JsonPath.using(configuration).parse(future.get().body)
+        assertArray(context.read("$.branches", List::class.java) as List<Any>, "https://localhost.com/user", "https://localhost.com/orders", "https://localhost.com/preferences")
+        assertEquals(0, context.read("$.skipped", Int::class.java))
+        assertEquals("https://localhost.com/summary", context.read("$.summary", String::class.java))
+    }
+
+    @Test
+    fun executeAsync__withConcurrentLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 4\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "concurrency": 2,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null,
+                                    "requests": [
+                                        {
+                                            "http_method": "GET",
+                                            "url": "https://localhost.com/@{$.requests[0].counter}@/detail",
+                                            "body": null
+                                        }
+                                    ]
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "counter": "$.requests[0].counter",
+                            "urls": "$.responses[0].times[*][*].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val future = engine.executeAsync(Request(), template)
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/1"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/1")
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/1/detail"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/1/detail")
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/2"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/0")
+        dispatcher.complete("https://localhost.com/2")
+        dispatcher.complete("https://localhost.com/0/detail")
+        assertEquals(setOf("https://localhost.com/2/detail", "https://localhost.com/3"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/3")
+        dispatcher.complete("https://localhost.com/3/detail")
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/2/detail")
+
+        val context = JsonPath.using(configuration).parse(future.get().body)
+        assertEquals(4, context.read("$.counter", Int::class.java))
+        assertArray(context.read("$.urls", List::class.java) as List<Any>,
+                "https://localhost.com/0", "https://localhost.com/0/detail",
+                "https://localhost.com/1", "https://localhost.com/1/detail",
+                "https://localhost.com/2", "https://localhost.com/2/detail",
+                "https://localhost.com/3", "https://localhost.com/3/detail")
+    }
+
+    @Test
+    fun executeAsync__withPrefetchLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < @{$.original.body.pages}@\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "prefetch": 2,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "counter": "$.requests[0].counter",
+                            "urls": "$.responses[0].times[*][*].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val future = engine.executeAsync("""{ "headers": {}, "body": { "pages": 3 } }""".toObj(Request::class.java), template)
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/1", "https://localhost.com/2"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/1")
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/2"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/0")
+        assertEquals(setOf("https://localhost.com/2", "https://localhost.com/3", "https://localhost.com/4"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/3")
+        assertEquals(setOf("https://localhost.com/2", "https://localhost.com/4"), dispatcher.pendingUrls)
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/2")
+        assertTrue(future.isDone)
+        dispatcher.complete("https://localhost.com/4")
+
+        val context = JsonPath.using(configuration).parse(future.get().body)
+        assertEquals(3, context.read("$.counter", Int::class.java))
+        assertArray(context.read("$.urls", List::class.java) as List<Any>, "https://localhost.com/0", "https://localhost.com/1", "https://localhost.com/2")
+    }
+
+    @Test
+    fun executeAsync__withPrefetchLoop__ignoresPagesBeyondEnd() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < @{$.original.body.pages}@\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "prefetch": 2,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null,
+                                    "vars": [
+                                        {
+                                            "vars": {
+                                                "last_page": "$.requests[0].counter"
+                                            }
+                                        }
+                                    ],
+                                    "responses": [
+                                        {
+                                            "predicate": "__cmp(\"@{$.requests[0].counter}@ >= @{$.original.body.pages}@\")",
+                                            "body": "beyond"
+                                        }
+                                    ]
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "counter": "$.requests[0].counter",
+                            "last_page": "$.vars.last_page",
+                            "urls": "$.responses[0].times[*][*].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val future = engine.executeAsync("""{ "headers": {}, "body": { "pages": 2 } }""".toObj(Request::class.java), template)
+        assertEquals(setOf("https://localhost.com/0", "https://localhost.com/1", "https://localhost.com/2"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/2")
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/0")
+        assertEquals(setOf("https://localhost.com/1", "https://localhost.com/3"), dispatcher.pendingUrls)
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/1")
+        assertTrue(future.isDone)
+
+        val context = JsonPath.using(configuration).parse(future.get().body)
+        assertEquals(2, context.read("$.counter", Int::class.java))
+        assertEquals(1, context.read("$.last_page", Int::class.java))
+        assertArray(context.read("$.urls", List::class.java) as List<Any>, "https://localhost.com/0", "https://localhost.com/1")
+    }
+
+    @Test
+    fun executeAsync__withStreamedLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 3\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "stream": "pages",
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "times": "$.responses[0].times.length()",
+                            "last": "$.responses[0].times[-1][0].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatchedUrls = ArrayList<String>()
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            dispatchedUrls.add(request.url)
+            CompletableFuture.completedFuture("""{ "headers": {}, "body": { "url": "${request.url}" } }""".toObj(Response::class.java))
+        }
+        val pendingFutures = ArrayDeque<Pair<Any, CompletableFuture<Void>>>()
+        val loopSink = LoopSink { stream, counter, _, responses ->
+            assertEquals("pages", stream)
+            assertEquals(1, responses.size)
+            val future = CompletableFuture<Void>()
+            pendingFutures.add(counter to future)
+            future
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+
+        val future = engine.executeAsync(Request(), engine.compile(template), loopSink)
+        for (i in 0..2) {
+            assertEquals(i + 1, dispatchedUrls.size)
+            val (counter, pendingFuture) = pendingFutures.removeFirst()
+            assertEquals(i, counter)
+            assertFalse(future.isDone)
+            pendingFuture.complete(null)
+        }
+
+        assertTrue(future.isDone)
+        val context = JsonPath.using(configuration).parse(future.get().body)
+        assertEquals(3, context.read("$.times", Int::class.java))
+        assertEquals("https://localhost.com/2", context.read("$.last", String::class.java))
+    }
+
+    @Test
+    fun executeAsync__withLoopAccumulators() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 3\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "retain_times": false,
+                            "accumulators": [
+                                { "name": "total", "type": "sum", "value": "$.responses[0].body.items[*].amount" },
+                                { "name": "count", "type": "count", "value": "$.responses[0].body.items" },
+                                { "name": "max", "type": "max", "value": "$.responses[0].body.items[*].amount" },
+                                { "name": "amounts", "type": "concat", "value": "$.responses[0].body.items[*].amount" },
+                                { "name": "pages", "type": "append", "value": "$.counter" }
+                            ],
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "accumulators": "$.responses[0].accumulators",
+                            "first": "$.responses[0].times[0]",
+                            "last": "$.responses[0].times[-1][0].body.items[*].amount"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            val page = request.url.substringAfterLast("/").toInt()
+            CompletableFuture.completedFuture("""{ "headers": {}, "body": { "items": [ { "amount": $page }, { "amount": ${page + 1} } ] } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+
+        val response = engine.executeAsync(Request(), template).get()
+        val context = JsonPath.using(configuration).parse(response.body)
+        assertEquals(9, context.read("$.accumulators.total", Int::class.java))
+        assertEquals(6, context.read("$.accumulators.count", Int::class.java))
+        assertEquals(3, context.read("$.accumulators.max", Int::class.java))
+        assertArray(context.read("$.accumulators.amounts", List::class.java) as List<Any>, 0, 1, 1, 2, 2, 3)
+        assertArray(context.read("$.accumulators.pages", List::class.java) as List<Any>, 0, 1, 2)
+        assertEquals(null, context.read("$.first"))
+        assertArray(context.read("$.last", List::class.java) as List<Any>, 2, 3)
+    }
+
+    @Test
+    fun executeAsync__withRetention() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/0",
+                        "body": null,
+                        "retention": { "policy": "headers" },
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://localhost.com/1",
+                                "body": null,
+                                "retention": { "policy": "paths", "paths": [ "$.status", "$.body.id" ] },
+                                "requests": [
+                                    {
+                                        "http_method": "GET",
+                                        "url": "https://localhost.com/2",
+                                        "body": null,
+                                        "retention": { "policy": "none" },
+                                        "requests": [
+                                            {
+                                                "http_method": "GET",
+                                                "url": "https://localhost.com/3",
+                                                "body": null
+                                            }
+                                        ]
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "retention_options": {
+                    "compact_result": true
+                }
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            CompletableFuture.completedFuture("""{ "status": 200, "headers": {}, "body": { "id": "${request.url}", "name": "a" } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+
+        val compiledTemplate = engine.compile(template)
+        var context = JsonPath.using(configuration).parse(engine.executeAsync(Request(), compiledTemplate).get().body)
+        assertEquals(4, context.read("$.responses.length()", Int::class.java))
+        assertEquals(listOf(200, 200, 200, 200), context.read("$.responses[*].status", List::class.java))
+        assertEquals(mapOf("status" to 200), context.read("$.responses[2]", Map::class.java))
+        assertEquals(mapOf("status" to 200), context.read("$.responses[0]", Map::class.java))
+
+        template.retentionOptions.compactResult = false
+        template.responses = listOf("""{ "body": "$.responses" }""".toObj(ResponseTemplate::class.java))
+        context = JsonPath.using(configuration).parse(engine.execute(Request(), template).body)
+        assertEquals(mapOf("status" to 200, "headers" to mapOf<String, Any>()), context.read("$[0]", Map::class.java))
+        assertEquals(mapOf("status" to 200, "body" to mapOf("id" to "https://localhost.com/1")), context.read("$[1]", Map::class.java))
+        assertEquals(mapOf("status" to 200), context.read("$[2]", Map::class.java))
+        assertEquals("a", context.read("$[3].body.name", String::class.java))
+
+        template.responses = listOf("""{ "body": "$.requests" }""".toObj(ResponseTemplate::class.java))
+        context = JsonPath.using(configuration).parse(engine.execute(Request(), template).body)
+        assertEquals("https://localhost.com/0", context.read("$[0].url", String::class.java))
+        assertFalse(context.read("$[1]", Map::class.java).containsKey("url"))
+        assertEquals(mapOf<String, Any>(), context.read("$[2]", Map::class.java))
+        assertEquals("https://localhost.com/3", context.read("$[3].url", String::class.java))
+    }
+
+    @Test
+    fun executeAsync__withRetentionPathsMatchingNothing() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/0",
+                        "body": null,
+                        "retention": { "policy": "paths", "paths": [ "$.body.missing" ] }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "request": "$.requests[0]",
+                            "response": "$.responses[0]"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val asyncDispatcher = AsyncRequestDispatcher { _, _, _ ->
+            CompletableFuture.completedFuture("""{ "status": 200, "headers": {}, "body": { "id": 1 } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+
+        val context = JsonPath.using(configuration).parse(engine.executeAsync(Request(), template).get().body)
+        assertEquals(mapOf<String, Any>(), context.read("$.request", Map::class.java))
+        assertEquals(mapOf<String, Any>(), context.read("$.response", Map::class.java))
+    }
+
+    @Test
+    fun executeAsync__withDiscardedBody() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/0",
+                        "body": null,
+                        "retention": { "policy": "headers" },
+                        "requests": [
+                            {
+                                "http_method": "POST",
+                                "url": "https://localhost.com/1",
+                                "body": null
+                            }
+                        ]
+                    }
+                ],
+                "retention_options": {
+                    "compact_result": true
+                }
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val options = LinkedHashMap<String, DispatchOptions>()
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, dispatchOptions ->
+            options[request.url] = dispatchOptions
+            CompletableFuture.completedFuture("""{ "status": 200, "headers": {}, "body": { "id": 1 } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+        engine.isPruning = true
+
+        engine.executeAsync(Request(), engine.compile(template)).get()
+        assertEquals(true, options["https://localhost.com/0"]!!.discardBody)
+        assertEquals(true, options["https://localhost.com/1"]!!.discardBody)
+
+        template.responses = listOf("""{ "body": "$.responses[1].body.id" }""".toObj(ResponseTemplate::class.java))
+        assertEquals(1, engine.executeAsync(Request(), engine.compile(template)).get().body)
+        assertEquals(true, options["https://localhost.com/0"]!!.discardBody)
+        assertEquals(false, options["https://localhost.com/1"]!!.discardBody)
+        assertEquals(listOf("$['id']"), options["https://localhost.com/1"]!!.projection)
+    }
+
+    @Test
+    fun executeAsync__withEncodedBody() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "POST",
+                        "url": "https://localhost.com/0",
+                        "body": { "name": "a", "tags": [ "x", 1, true, null ] },
+                        "requests": [
+                            {
+                                "http_method": "POST",
+                                "url": "https://localhost.com/1",
+                                "body": { "id": "$.responses[0].body.id" }
+                            }
+                        ]
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val requests = LinkedHashMap<String, Request>()
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            requests[request.url] = request
+            CompletableFuture.completedFuture("""{ "status": 200, "headers": {}, "body": { "id": 1 } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+        val compiledTemplate = engine.compile(template)
+
+        engine.executeAsync(Request(), compiledTemplate).get()
+        val encodedBody = requests["https://localhost.com/0"]!!.encodedBody
+        assertEquals(requests["https://localhost.com/0"]!!.body, objectMapper.readValue(encodedBody, Any::class.java))
+        assertEquals(null, requests["https://localhost.com/1"]!!.encodedBody)
+        assertEquals(mapOf("id" to 1), requests["https://localhost.com/1"]!!.body)
+
+        engine.executeAsync(Request(), compiledTemplate).get()
+        assertSame(encodedBody, requests["https://localhost.com/0"]!!.encodedBody)
+    }
+
+    @Test
+    fun compile__responsePaths() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com",
+                        "body": null,
+                        "requests": [
+                            {
+                                "predicate": "__cmp(\"@{$.responses[0].status}@ == 200\")",
+                                "http_method": "POST",
+                                "url": "https://localhost.com/@{$.responses[0].body.id}@",
+                                "body": {
+                                    "names": "$.responses[0].body.items[?(@.active == true)].name",
+                                    "count": "$.responses[0].body.items.length()",
+                                    "original": "$.original.body"
+                                }
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[1].body.result"
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock)
+
+        assertEquals(listOf("$['body']['result']", "$['status']", "$['body']['id']", "$['body']['items']"),
+                engine.compile(template).responsePaths.map { it.path })
+        assertEquals(listOf("$['result']", "$['id']", "$['items']"),
+                engine.compile(template).projectedDispatchOptions.projection)
+
+        template.responses = listOf("""{ "predicate": "__cmp(\"1 > 2\")", "body": "$.responses[1].body.result" }""".toObj(ResponseTemplate::class.java))
+        assertEquals(null, engine.compile(template).responsePaths)
+        template.responses = listOf("""{ "body": "$.responses[1]" }""".toObj(ResponseTemplate::class.java))
+        assertEquals(null, engine.compile(template).responsePaths)
+        assertEquals(null, engine.compile(template).projectedDispatchOptions)
+    }
+
+    @Test
+    fun executeAsync__withPrunedResponses() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com",
+                        "body": null,
+                        "vars": [
+                            { "vars": { "first": "$.responses[0].body.items[0]" } }
+                        ],
+                        "requests": [
+                            {
+                                "http_method": "POST",
+                                "url": "https://localhost.com/@{$.responses[0].body.id}@",
+                                "body": "$.vars.first"
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "id": "$.responses[0].body.id",
+                            "names": "$.responses[*].body.items[*].name",
+                            "status": "$.responses[1].status"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val requestBodies = ArrayList<Any?>()
+        val asyncDispatcher = AsyncRequestDispatcher { request, _, _ ->
+            requestBodies.add(request.body)
+            CompletableFuture.completedFuture("""{ "status": 200, "headers": { "h": ["1"] }, "body": { "id": 1, "items": [ { "name": "a", "value": 1 }, { "name": "b", "value": 2 } ] } }""".toObj(Response::class.java))
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+        val compiledTemplate = engine.compile(template)
+        assertEquals(listOf("$['body']['id']", "$['body']['items'][*]['name']", "$['status']", "$['body']['items'][0]"),
+                compiledTemplate.responsePaths.map { it.path })
+
+        assertFalse(engine.isPruning)
+        engine.isPruning = true
+        val prunedBody = engine.execute(Request(), compiledTemplate).body
+        engine.isPruning = false
+        val fullBody = engine.execute(Request(), compiledTemplate).body
+
+        assertEquals(fullBody, prunedBody)
+        assertEquals(requestBodies[1], requestBodies[3])
+        assertEquals(mapOf("name" to "a", "value" to 1), requestBodies[1])
+    }
+
+    @Test
+    fun executeAsync__withPipelining() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/user",
+                        "body": null,
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://localhost.com/orders",
+                                "body": null,
+                                "requests": [
+                                    {
+                                        "http_method": "POST",
+                                        "url": "https://localhost.com/summary",
+                                        "body": "$.responses[0].body.url"
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[*].body.url"
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+        engine.isPipelining = true
+
+        val future = engine.executeAsync(Request(), template)
+        assertEquals(setOf("https://localhost.com/user", "https://localhost.com/orders"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/orders")
+        assertEquals(setOf("https://localhost.com/user"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/user")
+        assertEquals(setOf("https://localhost.com/summary"), dispatcher.pendingUrls)
+        assertFalse(future.isDone)
+        dispatcher.complete("https://localhost.com/summary")
+
+        assertArray(future.get().body as List<Any>, "https://localhost.com/user", "https://localhost.com/orders", "https://localhost.com/summary")
+    }
+
+    @Test
+    fun executeAsync__withoutPipelining() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/user",
+                        "body": null,
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://localhost.com/orders",
+                                "body": null
+                            }
+                        ]
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val dispatcher = ManualDispatcher()
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val future = engine.executeAsync(Request(), template)
+        assertEquals(setOf("https://localhost.com/user"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/user")
+        assertEquals(setOf("https://localhost.com/orders"), dispatcher.pendingUrls)
+        dispatcher.complete("https://localhost.com/orders")
+        assertTrue(future.isDone)
+    }
+
+    @Test(expected = IOException::class)
+    fun execute__dispatchFailed() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com",
+                        "body": null
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        doThrow(IOException("Connection refused")).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+        batchEngine.execute(Request(), template)
+    }
+
     @Test
     fun test() {
         val template = """
@@ -498,5 +1335,22 @@ class BatchEngineTest {
         println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
     }
 
+    private inner class ManualDispatcher : AsyncRequestDispatcher {
+
+        private val pendingFutures = LinkedHashMap<String, CompletableFuture<Response>>()
+
+        val pendingUrls: Set<String>
+            get() = pendingFutures.keys
+
+        override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): CompletableFuture<Response> {
+            val future = CompletableFuture<Response>()
+            pendingFutures[request.url] = future
+            return future
+        }
+
+        fun complete(url: String) = pendingFutures.remove(url)!!.complete("""{ "headers": {}, "body": { "url": "$url" } }""".toObj(Response::class.java))
+
+    }
+
     fun <T> String.toObj(cl: Class<T>): T = objectMapper.readValue(this, cl)
 }
\ No newline at end of file
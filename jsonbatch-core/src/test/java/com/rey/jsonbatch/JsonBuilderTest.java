@@ -6,6 +6,11 @@ import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.compiler.JsonPathSchema;
+import com.rey.jsonbatch.compiler.ObjectSchema;
+import com.rey.jsonbatch.compiler.RawSchema;
+import com.rey.jsonbatch.compiler.Schema;
+import com.rey.jsonbatch.compiler.ValueSchema;
 import com.rey.jsonbatch.function.AndFunction;
 import com.rey.jsonbatch.function.AverageFunction;
 import com.rey.jsonbatch.function.CompareFunction;
@@ -27,9 +32,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.rey.jsonbatch.TestUtils.assertArray;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class JsonBuilderTest {
 
@@ -239,6 +252,25 @@ public class JsonBuilderTest {
         assertEquals(true, result);
     }
 
+    @Test
+    public void buildNode__nestedReduceFunction__shortCircuit() {
+        String schema = "__and(__or(true, true), false)";
+        Object result = jsonBuilder.build(schema, documentContext);
+        assertEquals(false, result);
+    }
+
+    @Test
+    public void build__compiledSchema() {
+        Schema schema = jsonBuilder.compile("int __sum(\"$[*].second\", 5)");
+        assertEquals(new BigInteger("15"), jsonBuilder.build(schema, documentContext));
+        assertEquals(new BigInteger("15"), jsonBuilder.build(schema, documentContext));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile__unsupportedFunction() {
+        jsonBuilder.compile("__unknown(1)");
+    }
+
     @Test
     public void buildNode__rawString__inlineVariable() {
         String schema = "str asd @{$[0].first}@ qwe @{int __sum(\"$[*].second\")}@ zxc";
@@ -267,6 +299,61 @@ public class JsonBuilderTest {
         assertEquals("asd qwe @{}@", result);
     }
 
+    @Test
+    public void buildNode__rawString__unclosedVariable() {
+        String schema = "str asd @{$[0].first";
+        Object result = jsonBuilder.build(schema, documentContext);
+        assertEquals("asd @{$[0].first", result);
+    }
+
+    @Test
+    public void compile__rawString__inlineVariable() {
+        RawSchema schema = (RawSchema) jsonBuilder.compile("str a @{$[0].first}@@{$[1].first}@ b");
+        List<Object> segments = schema.getRaw().getSegments();
+        assertEquals(4, segments.size());
+        assertEquals("a ", segments.get(0));
+        assertTrue(segments.get(1) instanceof JsonPathSchema);
+        assertTrue(segments.get(2) instanceof JsonPathSchema);
+        assertEquals(" b", segments.get(3));
+        assertEquals("a str1str2 b", jsonBuilder.build(schema, documentContext));
+        assertEquals("a str1str2 b", jsonBuilder.build(schema, documentContext));
+    }
+
+    @Test
+    public void compile__rawString__constant() {
+        RawSchema schema = (RawSchema) jsonBuilder.compile("str a \\@{b}@");
+        assertTrue(schema.getRaw().isConstant());
+        assertEquals("a @{b}@", jsonBuilder.build(schema, documentContext));
+    }
+
+    @Test
+    public void compile__jsonPath__withHole() {
+        JsonPathSchema schema = (JsonPathSchema) jsonBuilder.compile("str $[@{$[1].second}@].first");
+        assertNotNull(schema.getTemplate());
+        assertEquals("str3", jsonBuilder.build(schema, documentContext));
+    }
+
+    @Test
+    public void buildNode__jsonPath__propertyHole() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("key", "b");
+        data.put("index", -1);
+        data.put("values", Collections.singletonMap("b", Arrays.asList(1, 2, 3)));
+        DocumentContext context = JsonPath.using(documentContext.configuration()).parse(data);
+
+        assertEquals(3, jsonBuilder.build("$.values.@{$.key}@[@{$.index}@]", context));
+        assertEquals(3, jsonBuilder.build("$.values['@{$.key}@'][@{$.index}@]", context));
+        assertEquals(Arrays.asList(1, 2, 3), jsonBuilder.build("$.values['@{$.key}@'][*]", context));
+        assertEquals(3, jsonBuilder.build("$$.values.@{$.key}@[2]", context));
+    }
+
+    @Test
+    public void buildNode__jsonPath__unsupportedHole() {
+        String schema = "str $[?(@.second == @{$[1].second}@)].first";
+        assertNull(((JsonPathSchema) jsonBuilder.compile(schema)).getTemplate());
+        assertEquals("str2", jsonBuilder.build(schema, documentContext));
+    }
+
     @Test
     public void buildNode__function__escapeQuote() {
         String schema = "str __regex(\"qwe \\\" abc\", \".*\", 0)";
@@ -293,6 +380,61 @@ public class JsonBuilderTest {
         assertArray(result, 1, true, "abc");
     }
 
+    @Test
+    public void compile__constantObject() {
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("a", "abc");
+        schema.put("b", Arrays.asList(1, "str \\@{x}@"));
+        schema.put("c", Collections.singletonMap("d", null));
+        Schema compiledSchema = jsonBuilder.compile(schema);
+        assertTrue(compiledSchema instanceof ValueSchema);
+
+        Map<String, Object> result = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        assertEquals("abc", result.get("a"));
+        assertArray((List<Object>)result.get("b"), 1, "@{x}@");
+        assertEquals(Collections.singletonMap("d", null), result.get("c"));
+
+        Map<String, Object> second = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        assertEquals(result, second);
+        assertNotSame(result, second);
+        assertNotSame(result.get("b"), second.get("b"));
+    }
+
+    @Test
+    public void compile__constantSubtree() {
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("a", "$[0].first");
+        schema.put("b", Collections.singletonMap("c", Arrays.asList(1, 2)));
+        Schema compiledSchema = jsonBuilder.compile(schema);
+        assertTrue(compiledSchema instanceof ObjectSchema);
+
+        Map<String, Object> first = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        Map<String, Object> second = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        assertEquals("str1", first.get("a"));
+        assertNotSame(first, second);
+        assertSame(first.get("b"), second.get("b"));
+    }
+
+    @Test
+    public void compile__constantObject__mutable() {
+        Schema compiledSchema = jsonBuilder.compile(Collections.singletonMap("a", Collections.singletonMap("b", Arrays.asList(1, 2))));
+        Map<String, Object> result = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        result.put("c", 3);
+        ((List<Object>)((Map<String, Object>)result.get("a")).get("b")).add(4);
+
+        Map<String, Object> second = (Map<String, Object>)jsonBuilder.build(compiledSchema, documentContext);
+        assertEquals(Collections.singletonMap("a", Collections.singletonMap("b", Arrays.asList(1, 2))), second);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void compile__constantSubtree__immutable() {
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("a", "$[0].first");
+        schema.put("b", Collections.singletonMap("c", 1));
+        Map<String, Object> result = (Map<String, Object>)jsonBuilder.build(schema, documentContext);
+        ((Map<String, Object>)result.get("b")).put("d", 2);
+    }
+
     @Test
     public void buildNode__missingType() {
         assertEquals("str1", jsonBuilder.build("$[0].first", documentContext));
@@ -447,6 +589,54 @@ public class JsonBuilderTest {
         assertEquals("str1", result.get(1).get("second"));
     }
 
+    @Test
+    public void buildArray__withObjectSchema__parallel() {
+        Map<String, Object> nestedSchema = new HashMap<>();
+        nestedSchema.put("first", "$.first");
+        nestedSchema.put("__array_schema", "$$[0:3]");
+        Map<String, Object> childSchema = new HashMap<>();
+        childSchema.put("first", "$.first");
+        childSchema.put("nested", Collections.singletonList(nestedSchema));
+        childSchema.put("__array_schema", "$[*]");
+        Schema schema = jsonBuilder.compile(Collections.singletonList(childSchema));
+        Object expected = jsonBuilder.build(schema, documentContext);
+
+        AtomicInteger taskCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            jsonBuilder.setParallelThreshold(2);
+            jsonBuilder.setExecutor(task -> {
+                taskCount.incrementAndGet();
+                executorService.execute(task);
+            });
+            assertEquals(expected, jsonBuilder.build(schema, documentContext));
+            assertTrue(taskCount.get() > 1);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void buildArray__withNestedObjectSchema() {
+        Map<String, Object> objectSchema = new HashMap<>();
+        objectSchema.put("third", "$.third");
+        objectSchema.put("total", "int __sum(\"$$[*].second\")");
+        objectSchema.put("__object_schema", "$$[@{$.second}@]");
+        Map<String, Object> childSchema = new HashMap<>();
+        childSchema.put("first", "$.first");
+        childSchema.put("next", objectSchema);
+        childSchema.put("__array_schema", "$[0:2]");
+
+        List<Map<String, Object>> result = (List<Map<String, Object>>)jsonBuilder.build(Collections.singletonList(childSchema), documentContext);
+
+        assertEquals(2, result.size());
+        assertEquals("str1", result.get(0).get("first"));
+        assertEquals(2.5, ((Map<String, Object>)result.get(0).get("next")).get("third"));
+        assertEquals(new BigInteger("10"), ((Map<String, Object>)result.get(0).get("next")).get("total"));
+        assertEquals("str2", result.get(1).get("first"));
+        assertEquals(3.5, ((Map<String, Object>)result.get(1).get("next")).get("third"));
+    }
+
     private List<Data> buildData() {
         return Arrays.asList(
                 new Data("str1", 1L, 1.5, true, 2),
@@ -0,0 +1,52 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class JsonPathCacheTest {
+
+    @Test
+    public void get__countHitAndMiss() {
+        JsonPathCache cache = new JsonPathCache(10);
+        JsonPath path = cache.get("$.a");
+        assertSame(path, cache.get("$.a"));
+        cache.get("$.b");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void get__evictLeastRecentlyUsed() {
+        JsonPathCache cache = new JsonPathCache(2);
+        JsonPath a = cache.get("$.a");
+        JsonPath b = cache.get("$.b");
+        cache.get("$.a");
+        cache.get("$.c");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.get("$.a"));
+        assertNotSame(b, cache.get("$.b"));
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void get__invalidPath() {
+        new JsonPathCache().get("$.a..");
+    }
+
+    @Test
+    public void compile__populateCache() {
+        JsonBuilder jsonBuilder = new JsonBuilder(new JsonPathCache(10));
+        jsonBuilder.compile("str $.a");
+        jsonBuilder.compile("$$.b[@{$.c}@].d");
+        assertEquals(4, jsonBuilder.getJsonPathCache().size());
+        assertEquals(4, jsonBuilder.getJsonPathCache().getMissCount());
+    }
+
+}
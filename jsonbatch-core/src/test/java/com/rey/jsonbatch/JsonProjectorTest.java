@@ -0,0 +1,111 @@
+package com.rey.jsonbatch;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.rey.jsonbatch.TestUtils.assertArray;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@SuppressWarnings("unchecked")
+public class JsonProjectorTest {
+
+    private ObjectMapper objectMapper;
+
+    private JacksonJsonProvider jsonProvider;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        jsonProvider = new JacksonJsonProvider(objectMapper);
+    }
+
+    private Object parse(String json, String... paths) throws Exception {
+        return new JsonProjector(Arrays.asList(paths)).parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), jsonProvider);
+    }
+
+    @Test
+    public void parse__keepSelectedPaths() throws Exception {
+        Map<String, Object> result = (Map<String, Object>) parse("{ \"total\": 2, \"meta\": { \"tags\": [\"x\", { \"y\": [1, 2] }], \"note\": \"a \\\"}]\" }, " +
+                "\"items\": [ { \"id\": 1, \"name\": \"a\" }, { \"id\": 2, \"name\": \"b\" } ] }", "$['items'][*]['id']");
+
+        assertFalse(result.containsKey("total"));
+        assertFalse(result.containsKey("meta"));
+        List<Map<String, Object>> items = (List<Map<String, Object>>) result.get("items");
+        assertEquals(2, items.size());
+        assertEquals(Collections.singletonMap("id", 1), items.get(0));
+        assertEquals(Collections.singletonMap("id", 2), items.get(1));
+    }
+
+    @Test
+    public void parse__keepWholeSubtree() throws Exception {
+        String json = "{ \"data\": { \"a\": [1, 2147483648, 12345678901234567890, 1.5e2, true, null], \"b\": \"\\u00e9t\\u00e9 \u00e9\" }, \"next\": \"x\" }";
+        Map<String, Object> result = (Map<String, Object>) parse(json, "$['data']['a'][0]", "$['data']");
+
+        assertEquals(Collections.singleton("data"), result.keySet());
+        assertEquals(objectMapper.readValue(json, Map.class).get("data"), result.get("data"));
+        Map<String, Object> data = (Map<String, Object>) result.get("data");
+        assertArray((List<Object>) data.get("a"), 1, 2147483648L, new BigInteger("12345678901234567890"), 150.0, true, null);
+        assertEquals(objectMapper.readValue(json, Map.class), parse(json, "$"));
+        assertEquals(objectMapper.readValue(json, Map.class), parse(json, "$['data']", "$..next"));
+    }
+
+    @Test
+    public void parse__escapedSurrogatePair() throws Exception {
+        String json = "{ \"text\": \"smile \\ud83d\\ude00!\", \"raw\": \"\ud83d\ude00\" }";
+        Map<String, Object> result = (Map<String, Object>) parse(json, "$['text']", "$['raw']");
+
+        assertEquals("smile \ud83d\ude00!", result.get("text"));
+        assertEquals("\ud83d\ude00", result.get("raw"));
+        assertEquals(objectMapper.readValue(json, Map.class), result);
+    }
+
+    @Test
+    public void parse__numbersFollowProvider() throws Exception {
+        objectMapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        jsonProvider = new JacksonJsonProvider(objectMapper);
+        String json = "{ \"data\": { \"price\": 0.1, \"amount\": -1.25e2, \"count\": 3 } }";
+        Map<String, Object> result = (Map<String, Object>) parse(json, "$['data']['price']", "$['data']['amount']", "$['data']['count']");
+
+        Map<String, Object> data = (Map<String, Object>) result.get("data");
+        assertEquals(new BigDecimal("0.1"), data.get("price"));
+        assertEquals(new BigDecimal("-1.25e2"), data.get("amount"));
+        assertEquals(3, data.get("count"));
+        assertEquals(jsonProvider.parse(json), result);
+    }
+
+    @Test(expected = InvalidJsonException.class)
+    public void parse__invalidNumber() throws Exception {
+        parse("{ \"items\": [1-2] }", "$['items']");
+    }
+
+    @Test
+    public void parse__missingPath() throws Exception {
+        assertNull(parse("{ \"items\": [1, 2] }"));
+        assertNull(parse("[1, 2]", "$['items']"));
+        assertEquals(Collections.emptyMap(), parse("{ \"items\": [1, 2] }", "$['data']"));
+
+        Map<String, Object> result = (Map<String, Object>) parse("{ \"items\": [ { \"id\": 1 }, { \"id\": 2 }, { \"id\": 3 } ] }", "$['items'][1]['id']");
+        assertArray((List<Object>) result.get("items"), null, Collections.singletonMap("id", 2));
+    }
+
+    @Test(expected = InvalidJsonException.class)
+    public void parse__invalidJson() throws Exception {
+        parse("{ \"items\": [1, 2 }", "$['data']");
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.rey.jsonbatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.rey.jsonbatch.TestUtils.assertArray;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@SuppressWarnings("unchecked")
+public class JsonPrunerTest {
+
+    private ObjectMapper objectMapper;
+
+    private JsonPruner jsonPruner;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        jsonPruner = new JsonPruner(Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build());
+    }
+
+    @Test
+    public void prune__keepSelectedPaths() throws Exception {
+        Map<String, Object> json = objectMapper.readValue("{ \"status\": 200, \"headers\": { \"a\": [\"1\"] }, " +
+                "\"body\": { \"total\": 2, \"items\": [ { \"id\": 1, \"name\": \"a\" }, { \"id\": 2, \"name\": \"b\" } ] } }", Map.class);
+        Map<String, Object> result = (Map<String, Object>) jsonPruner.prune(json, Arrays.asList(JsonPath.compile("$.status"), JsonPath.compile("$.body.items[*].id")));
+
+        assertEquals(200, result.get("status"));
+        assertFalse(result.containsKey("headers"));
+        Map<String, Object> body = (Map<String, Object>) result.get("body");
+        assertFalse(body.containsKey("total"));
+        List<Map<String, Object>> items = (List<Map<String, Object>>) body.get("items");
+        assertEquals(2, items.size());
+        assertEquals(Collections.singletonMap("id", 2), items.get(1));
+    }
+
+    @Test
+    public void prune__keepWholeSubtree() throws Exception {
+        Map<String, Object> json = objectMapper.readValue("{ \"body\": { \"items\": [ { \"id\": 1 }, { \"id\": 2 } ], \"next\": null } }", Map.class);
+        Map<String, Object> result = (Map<String, Object>) jsonPruner.prune(json, Arrays.asList(JsonPath.compile("$.body.items[1].id"), JsonPath.compile("$.body.items")));
+
+        Map<String, Object> body = (Map<String, Object>) result.get("body");
+        assertSame(((Map<String, Object>) json.get("body")).get("items"), body.get("items"));
+        assertSame(json, jsonPruner.prune(json, Collections.singletonList(JsonPath.compile("$"))));
+    }
+
+    @Test
+    public void prune__missingPath() throws Exception {
+        Map<String, Object> json = objectMapper.readValue("{ \"body\": { \"items\": [ { \"id\": 1 }, { \"id\": 2 }, { \"id\": 3 } ] } }", Map.class);
+        assertNull(jsonPruner.prune(json, Collections.singletonList(JsonPath.compile("$.headers.a"))));
+
+        Map<String, Object> result = (Map<String, Object>) jsonPruner.prune(json, Collections.singletonList(JsonPath.compile("$.body.items[1].id")));
+        List<Object> items = (List<Object>) ((Map<String, Object>) result.get("body")).get("items");
+        assertArray(items, null, Collections.singletonMap("id", 2));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.rey.jsonbatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JsonWriterTest {
+
+    private ObjectMapper objectMapper;
+
+    private JsonWriter jsonWriter;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        jsonWriter = new JsonWriter(new JacksonJsonProvider(objectMapper));
+    }
+
+    @Test
+    public void encode__matchJsonProvider() throws Exception {
+        String json = "{\"id\":1,\"big\":12345678901234567890,\"price\":1.5,\"ok\":true,\"none\":null," +
+                "\"text\":\"a \\\"quoted\\\" \\\\ line\\nnext\\ttab\\u0001 \u00e9t\u00e9 \u4e2d\"," +
+                "\"items\":[{\"name\":\"a\"},[],{}]}";
+        Object value = objectMapper.readValue(json, Object.class);
+
+        byte[] bytes = jsonWriter.encode(value);
+        assertEquals(value, objectMapper.readValue(bytes, Object.class));
+        assertArrayEquals(objectMapper.writeValueAsBytes(value), bytes);
+    }
+
+    @Test
+    public void encode__supplementaryCharacters() throws Exception {
+        String text = "\ud83d\ude00 \ud83d";
+
+        byte[] bytes = jsonWriter.encode(text);
+        assertEquals("\"\ud83d\ude00 \\ud83d\"", new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(text, objectMapper.readValue(bytes, String.class));
+    }
+
+    @Test
+    public void write__largerThanBuffer() throws Exception {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, '\u00e9');
+        Map<String, Object> value = Collections.singletonMap("text", new String(chars));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        jsonWriter.write(value, outputStream);
+        assertArrayEquals(objectMapper.writeValueAsBytes(value), outputStream.toByteArray());
+    }
+
+    @Test
+    public void encode__fallbackToJsonProvider() throws Exception {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("array", new int[]{1, 2});
+        value.put("decimal", new BigDecimal("1.10"));
+        value.put("pojo", new Item("a"));
+
+        assertEquals("{\"array\":[1,2],\"decimal\":1.10,\"pojo\":{\"name\":\"a\"}}", new String(jsonWriter.encode(value), StandardCharsets.UTF_8));
+    }
+
+    public static class Item {
+
+        private String name;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+}
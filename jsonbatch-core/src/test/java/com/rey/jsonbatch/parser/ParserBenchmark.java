@@ -0,0 +1,49 @@
+package com.rey.jsonbatch.parser;
+
+// Run manually: prints parse time for generated expressions of increasing length.
+// A linear parser keeps the time per character roughly constant as the expression grows.
+public class ParserBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        Parser parser = new Parser();
+        System.out.println("Flat arguments: __sum(\"$.items[0]\", \"$.items[1]\", ...)");
+        for (int size = 1000; size <= 64000; size *= 2)
+            report(parser, flatExpression(size));
+
+        System.out.println("Nested functions: __and(true, __and(true, ...))");
+        for (int size = 125; size <= 2000; size *= 2)
+            report(parser, nestedExpression(size));
+    }
+
+    private static void report(Parser parser, String expression) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            parser.parse(expression);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++)
+            parser.parse(expression);
+        long nanos = (System.nanoTime() - start) / MEASURE_ROUNDS;
+        System.out.printf("length=%9d  time=%10.3f ms  ns/char=%6.1f%n",
+                expression.length(), nanos / 1_000_000D, (double) nanos / expression.length());
+    }
+
+    private static String flatExpression(int size) {
+        StringBuilder builder = new StringBuilder("__sum(");
+        for (int i = 0; i < size; i++)
+            builder.append(i == 0 ? "" : ", ").append("\"$.items[").append(i).append("]\"");
+        return builder.append(')').toString();
+    }
+
+    private static String nestedExpression(int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            builder.append("__and(true, ");
+        builder.append("true");
+        for (int i = 0; i < depth; i++)
+            builder.append(')');
+        return builder.toString();
+    }
+
+}
@@ -4,8 +4,8 @@ import org.junit.Test;
 
 import java.util.List;
 
-import static com.rey.jsonbatch.TestUtils.assertArray;
-import static com.rey.jsonbatch.parser.TokenValue.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class ParserTest {
 
@@ -13,48 +13,93 @@ public class ParserTest {
 
     @Test
     public void parse__jsonPath() {
-        List<TokenValue> values = parser.parse("$.body.request   ");
-        assertArray(values,
-                of(Token.JSON_PATH, "$.body.request"));
+        Node node = parser.parse("$.body.request   ");
+        assertEquals(JsonPathNode.of("$.body.request"), node);
     }
 
     @Test
     public void parse__rawData() {
-        List<TokenValue> values = parser.parse( "  123   ");
-        assertArray(values,
-                of(Token.RAW, "123"));
+        Node node = parser.parse( "  123   ");
+        assertEquals(LiteralNode.of("123"), node);
     }
 
     @Test
     public void parse__function() {
-        List<TokenValue> values = parser.parse("__sum(\"$.body.key\", 123 , \"abc\")");
-        assertArray(values,
-                of(Token.FUNC, "sum"),
-                of(Token.JSON_PATH, "$.body.key"),
-                of(Token.RAW, "123"),
-                of(Token.RAW, "abc"),
-                of(Token.END_FUNC));
+        Node node = parser.parse("__sum(\"$.body.key\", 123 , \"abc\")");
+        assertEquals(FunctionNode.of("sum",
+                JsonPathNode.of("$.body.key"),
+                LiteralNode.of("123"),
+                LiteralNode.of("abc")), node);
     }
 
     @Test
     public void parse__function__nestedFunc() {
-        List<TokenValue> values = parser.parse("__sum(\"qwe\\\"abc\", __avg(\"$.body  \"))");
-        assertArray(values,
-                of(Token.FUNC, "sum"),
-                of(Token.RAW, "qwe\\\"abc"),
-                of(Token.FUNC, "avg"),
-                of(Token.JSON_PATH, "$.body"),
-                of(Token.END_FUNC),
-                of(Token.END_FUNC));
+        Node node = parser.parse("__sum(\"qwe\\\"abc\", __avg(\"$.body  \"))");
+        assertEquals(FunctionNode.of("sum",
+                LiteralNode.of("qwe\\\"abc"),
+                FunctionNode.of("avg",
+                        JsonPathNode.of("$.body"))), node);
+    }
+
+    @Test
+    public void parse__function__nestedFuncInMiddle() {
+        Node node = parser.parse("__and(__or(true, false), __cmp(\"1 < 2\"), \"$.key\")");
+        assertEquals(FunctionNode.of("and",
+                FunctionNode.of("or",
+                        LiteralNode.of("true"),
+                        LiteralNode.of("false")),
+                FunctionNode.of("cmp",
+                        LiteralNode.of("1 < 2")),
+                JsonPathNode.of("$.key")), node);
     }
 
     @Test
     public void parse__function__escapedJsonPath() {
-        List<TokenValue> values = parser.parse("__sum(\"\\$.body.key\")");
-        assertArray(values,
-                of(Token.FUNC, "sum"),
-                of(Token.RAW, "\\$.body.key"),
-                of(Token.END_FUNC));
+        Node node = parser.parse("__sum(\"\\$.body.key\")");
+        assertEquals(FunctionNode.of("sum",
+                LiteralNode.of("\\$.body.key")), node);
+    }
+
+    @Test
+    public void parse__function__manyArguments() {
+        StringBuilder builder = new StringBuilder("__sum(");
+        for (int i = 0; i < 20000; i++)
+            builder.append(i == 0 ? "" : ", ").append('"').append("$.items[").append(i).append("]\"");
+        builder.append(')');
+
+        List<Node> arguments = ((FunctionNode) parser.parse(builder)).getArguments();
+        assertEquals(20000, arguments.size());
+        assertEquals(JsonPathNode.of("$.items[19999]"), arguments.get(19999));
+    }
+
+    @Test
+    public void parse__function__missingCloseBracket() {
+        try {
+            parser.parse("__sum(1, __avg(2)");
+            fail("Expect parse exception");
+        } catch (ParseException ex) {
+            assertEquals(17, ex.getPosition());
+        }
+    }
+
+    @Test
+    public void parse__function__missingCloseQuote() {
+        try {
+            parser.parse("__sum(1, \"abc)");
+            fail("Expect parse exception");
+        } catch (ParseException ex) {
+            assertEquals(9, ex.getPosition());
+        }
+    }
+
+    @Test
+    public void parse__function__invalidName() {
+        try {
+            parser.parse("__su-m(1)");
+            fail("Expect parse exception");
+        } catch (ParseException ex) {
+            assertEquals(4, ex.getPosition());
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.rey.jsonbatch.jdkhttp;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class AsyncJdkHttpRequestDispatcher implements AsyncRequestDispatcher {
+
+    private HttpClient httpClient;
+
+    private Executor executor;
+
+    private JdkHttpRequestDispatcher requestDispatcher;
+
+    public AsyncJdkHttpRequestDispatcher(HttpClient httpClient, Executor executor) {
+        if(executor == null)
+            throw new IllegalArgumentException("Executor must not be null");
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.requestDispatcher = new JdkHttpRequestDispatcher(httpClient);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        return httpClient.sendAsync(requestDispatcher.buildRequest(request, jsonProvider), responseInfo -> requestDispatcher.bodySubscriber(jsonProvider, options))
+                .thenComposeAsync(httpResponse -> {
+                    CompletableFuture<Response> future = new CompletableFuture<>();
+                    try {
+                        future.complete(requestDispatcher.buildResponse(httpResponse));
+                    }
+                    catch (IOException ex) {
+                        future.completeExceptionally(ex);
+                    }
+                    return future;
+                }, executor);
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.rey.jsonbatch.jdkhttp;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.JsonProjector;
+import com.rey.jsonbatch.JsonWriter;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class JdkHttpRequestDispatcher implements RequestDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(JdkHttpRequestDispatcher.class);
+
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private HttpClient httpClient;
+
+    public JdkHttpRequestDispatcher(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        return buildResponse(httpClient.send(buildRequest(request, jsonProvider), responseInfo -> bodySubscriber(jsonProvider, options)));
+    }
+
+    HttpRequest buildRequest(Request request, JsonProvider jsonProvider) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(request.getUrl()));
+        logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
+        request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.header(key, value)));
+        if(request.getBody() != null) {
+            if(logger.isDebugEnabled())
+                logger.debug("Request body: {}", jsonProvider.toJson(request.getBody()));
+            byte[] encodedBody = request.getEncodedBody() != null ? request.getEncodedBody() : new JsonWriter(jsonProvider).encode(request.getBody());
+            if(request.getHeaders().keySet().stream().noneMatch(CONTENT_TYPE::equalsIgnoreCase))
+                requestBuilder.header(CONTENT_TYPE, "application/json; charset=utf-8");
+            requestBuilder.method(request.getHttpMethod().toUpperCase(), HttpRequest.BodyPublishers.ofByteArray(encodedBody));
+        }
+        else
+            requestBuilder.method(request.getHttpMethod().toUpperCase(), HttpRequest.BodyPublishers.noBody());
+        return requestBuilder.build();
+    }
+
+    HttpResponse.BodySubscriber<Supplier<Object>> bodySubscriber(JsonProvider jsonProvider, DispatchOptions options) {
+        if(options.getDiscardBody())
+            return HttpResponse.BodySubscribers.replacing(() -> null);
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), inputStream -> () -> {
+            try (InputStream closeable = inputStream) {
+                return parseBody(closeable, jsonProvider, options);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    Response buildResponse(HttpResponse<Supplier<Object>> httpResponse) throws IOException {
+        Object body;
+        try {
+            body = httpResponse.body().get();
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        Response response = new Response();
+        Map<String, List<String>> headerMap = new HashMap<>();
+        httpResponse.headers().map().forEach((key, values) -> headerMap.put(key, new ArrayList<>(values)));
+
+        response.setStatus(httpResponse.statusCode());
+        response.setHeaders(headerMap);
+        response.setBody(body);
+        return response;
+    }
+
+    private Object parseBody(InputStream inputStream, JsonProvider jsonProvider, DispatchOptions options) throws IOException {
+        if(options.getFailBackAsString()) {
+            String bodyAsString;
+            try {
+                bodyAsString = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            catch (IOException ex) {
+                logger.warn("Cannot parse response body as String", ex);
+                if(!options.getIgnoreParsingError())
+                    throw ex;
+                return null;
+            }
+            try {
+                return jsonProvider.parse(bodyAsString);
+            }
+            catch (Exception ex) {
+                logger.warn("Cannot parse response body as JSON", ex);
+                return bodyAsString;
+            }
+        }
+        try {
+            if(options.getProjection() != null)
+                return new JsonProjector(options.getProjection()).parse(inputStream, jsonProvider);
+            return jsonProvider.parse(inputStream, "UTF-8");
+        }
+        catch (IOException | RuntimeException ex) {
+            logger.warn("Cannot parse response body as JSON", ex);
+            if(!options.getIgnoreParsingError())
+                throw ex;
+            return null;
+        }
+    }
+
+}
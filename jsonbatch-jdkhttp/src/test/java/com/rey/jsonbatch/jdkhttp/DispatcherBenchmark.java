@@ -0,0 +1,111 @@
+package com.rey.jsonbatch.jdkhttp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.apachehttpclient.ApacheHttpClientRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.okhttp.OkHttpRequestDispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+
+import java.net.http.HttpClient;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Run manually: prints the average dispatch time of each bundled dispatcher against a local MockWebServer.
+// Every dispatcher parses the same body with the same JsonProvider, once fully and once with a projection.
+public class DispatcherBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        JsonProvider jsonProvider = new JacksonJsonProvider(new ObjectMapper());
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            private final Map<Integer, Buffer> bodies = new ConcurrentHashMap<>();
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int items = Integer.parseInt(request.getRequestUrl().queryParameter("items"));
+                Buffer buffer = bodies.computeIfAbsent(items, key -> new Buffer().writeUtf8(body(key)));
+                return new MockResponse().setBody(buffer.clone());
+            }
+        });
+        server.start();
+
+        CloseableHttpClient apacheHttpClient = HttpClients.createDefault();
+        OkHttpClient okHttpClient = new OkHttpClient();
+        Map<String, RequestDispatcher> dispatchers = new LinkedHashMap<>();
+        dispatchers.put("jdkhttp", new JdkHttpRequestDispatcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()));
+        ExecutorService parsingExecutor = Executors.newSingleThreadExecutor();
+        AsyncJdkHttpRequestDispatcher asyncDispatcher = new AsyncJdkHttpRequestDispatcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), parsingExecutor);
+        dispatchers.put("jdkhttp-async", (request, provider, options) -> asyncDispatcher.dispatch(request, provider, options).get());
+        dispatchers.put("okhttp", new OkHttpRequestDispatcher(okHttpClient));
+        dispatchers.put("apache-httpclient", new ApacheHttpClientRequestDispatcher(apacheHttpClient));
+
+        DispatchOptions fullOptions = new DispatchOptions();
+        DispatchOptions projectedOptions = new DispatchOptions();
+        projectedOptions.setProjection(Collections.singletonList("$['items'][*]['id']"));
+        try {
+            for (int items = 10; items <= 10000; items *= 10) {
+                System.out.printf("Body with %d items (%d bytes)%n", items, body(items).length());
+                for (Map.Entry<String, RequestDispatcher> entry : dispatchers.entrySet()) {
+                    report(entry.getKey(), "full", entry.getValue(), request(server, items), jsonProvider, fullOptions);
+                    report(entry.getKey(), "projected", entry.getValue(), request(server, items), jsonProvider, projectedOptions);
+                }
+            }
+        } finally {
+            apacheHttpClient.close();
+            parsingExecutor.shutdown();
+            okHttpClient.dispatcher().executorService().shutdown();
+            okHttpClient.connectionPool().evictAll();
+            server.shutdown();
+        }
+    }
+
+    private static void report(String name, String mode, RequestDispatcher dispatcher, Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            dispatcher.dispatch(request, jsonProvider, options);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++)
+            dispatcher.dispatch(request, jsonProvider, options);
+        long nanos = (System.nanoTime() - start) / MEASURE_ROUNDS;
+        System.out.printf("%-18s %-10s time=%8.3f ms%n", name, mode, nanos / 1_000_000D);
+    }
+
+    private static Request request(MockWebServer server, int items) {
+        Request request = new Request();
+        request.setHttpMethod("GET");
+        request.setUrl(server.url("/items?items=" + items).toString());
+        request.setHeaders(new HashMap<>());
+        return request;
+    }
+
+    private static String body(int items) {
+        StringBuilder builder = new StringBuilder("{ \"total\": ").append(items).append(", \"items\": [");
+        for (int i = 0; i < items; i++) {
+            builder.append(i == 0 ? "" : ", ")
+                    .append("{ \"id\": ").append(i)
+                    .append(", \"name\": \"item ").append(i)
+                    .append("\", \"price\": ").append(i * 1.5)
+                    .append(", \"tags\": [\"a\", \"b\", \"c\"] }");
+        }
+        return builder.append("] }").toString();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.rey.jsonbatch.jdkhttp
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.PropertyNamingStrategy
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.InvalidJsonException
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.JsonBuilder
+import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.net.http.HttpClient
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class JdkHttpRequestDispatcherTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var configuration: Configuration
+
+    private lateinit var executor: ExecutorService
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        objectMapper = ObjectMapper()
+        objectMapper.propertyNamingStrategy = PropertyNamingStrategy.SNAKE_CASE
+        configuration = Configuration.builder()
+                .jsonProvider(JacksonJsonProvider(objectMapper))
+                .mappingProvider(JacksonMappingProvider(objectMapper))
+                .build()
+        executor = Executors.newFixedThreadPool(4)
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+        server.shutdown()
+    }
+
+    private fun request(path: String, body: Any? = null): Request {
+        val request = Request()
+        request.httpMethod = if (body == null) "get" else "post"
+        request.url = server.url(path).toString()
+        request.headers = mapOf("X-Id" to listOf(path))
+        request.body = body
+        return request
+    }
+
+    @Test
+    fun dispatch__withDispatchOptions() {
+        server.enqueue(MockResponse().addHeader("X-Id", "1").setBody("""{ "id": 1, "items": [ { "id": 2, "name": "a" } ] }"""))
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.enqueue(MockResponse().setBody("not json"))
+        server.enqueue(MockResponse().setBody("not json"))
+        server.start()
+        val dispatcher = JdkHttpRequestDispatcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+        val jsonProvider = configuration.jsonProvider()
+
+        var options = DispatchOptions()
+        options.projection = listOf("$['items'][*]['name']")
+        var response = dispatcher.dispatch(request("/0", mapOf("a" to 1)), jsonProvider, options)
+        assertEquals(200, response.status)
+        assertEquals(listOf("1"), response.headers["x-id"])
+        assertEquals(mapOf("items" to listOf(mapOf("name" to "a"))), response.body)
+        val recordedRequest = server.takeRequest()
+        assertEquals("POST", recordedRequest.method)
+        assertEquals("/0", recordedRequest.getHeader("X-Id"))
+        assertEquals("application/json; charset=utf-8", recordedRequest.getHeader("Content-Type"))
+        assertEquals("""{"a":1}""", recordedRequest.body.readUtf8())
+
+        options = DispatchOptions()
+        options.discardBody = true
+        response = dispatcher.dispatch(request("/1"), jsonProvider, options)
+        assertEquals(200, response.status)
+        assertEquals(null, response.body)
+
+        options = DispatchOptions()
+        options.failBackAsString = true
+        response = dispatcher.dispatch(request("/2"), jsonProvider, options)
+        assertEquals("not json", response.body)
+
+        try {
+            dispatcher.dispatch(request("/3"), jsonProvider, DispatchOptions())
+            throw AssertionError("Parsing error expected")
+        } catch (ex: InvalidJsonException) {
+        }
+    }
+
+    @Test
+    fun dispatch__asyncDisconnectDuringBody() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1, "items": [ { "id": 2, "name": "a" } ] }""").setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY))
+        server.start()
+        val dispatcher = AsyncJdkHttpRequestDispatcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), executor)
+        val options = DispatchOptions()
+        options.projection = listOf("$['items'][*]['name']")
+
+        try {
+            dispatcher.dispatch(request("/0"), configuration.jsonProvider(), options).get(10, TimeUnit.SECONDS)
+            throw AssertionError("IOException expected")
+        } catch (ex: ExecutionException) {
+            assertTrue(ex.cause is IOException)
+        }
+    }
+
+    @Test
+    fun dispatch__failBackAsStringDisconnectDuringBody() {
+        server.enqueue(MockResponse().setBody("not json at all").setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY))
+        server.enqueue(MockResponse().setBody("not json at all").setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY))
+        server.start()
+        val dispatcher = JdkHttpRequestDispatcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+        val options = DispatchOptions()
+        options.failBackAsString = true
+        options.ignoreParsingError = true
+
+        val response = dispatcher.dispatch(request("/0"), configuration.jsonProvider(), options)
+        assertEquals(200, response.status)
+        assertEquals(null, response.body)
+
+        options.ignoreParsingError = false
+        try {
+            dispatcher.dispatch(request("/1"), configuration.jsonProvider(), options)
+            throw AssertionError("IOException expected")
+        } catch (ex: IOException) {
+        }
+    }
+
+    @Test
+    fun executeAsync__withAsyncDispatcher() {
+        val latch = CountDownLatch(4)
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                latch.countDown()
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    return MockResponse().setResponseCode(504)
+                return MockResponse().setBody("""{ "id": ${request.path!!.substring(1)}, "ignored": [1, 2, 3] }""")
+            }
+        }
+        server.start()
+
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 4\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "concurrency": 4,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "${server.url("/")}@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[0].times[*][*].body.id"
+                    }
+                ]
+            }
+        """.let { objectMapper.readValue(it, BatchTemplate::class.java) }
+
+        val dispatcher = AsyncJdkHttpRequestDispatcher(HttpClient.newHttpClient(), executor)
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val response = engine.executeAsync(Request(), template).get(20, TimeUnit.SECONDS)
+        assertEquals(listOf(0, 1, 2, 3), response.body)
+        assertEquals(4, server.requestCount)
+    }
+
+}
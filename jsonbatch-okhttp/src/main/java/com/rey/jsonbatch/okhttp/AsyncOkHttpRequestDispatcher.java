@@ -0,0 +1,91 @@
+package com.rey.jsonbatch.okhttp;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncOkHttpRequestDispatcher implements AsyncRequestDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(AsyncOkHttpRequestDispatcher.class);
+
+    private OkHttpClient okHttpClient;
+
+    private OkHttpRequestDispatcher requestDispatcher;
+
+    public AsyncOkHttpRequestDispatcher(OkHttpClient okHttpClient) {
+        this.okHttpClient = okHttpClient;
+        this.requestDispatcher = new OkHttpRequestDispatcher(okHttpClient);
+    }
+
+    public AsyncOkHttpRequestDispatcher(OkHttpClient okHttpClient, int maxRequests, int maxRequestsPerHost, boolean priorKnowledge) {
+        this(configure(okHttpClient, maxRequests, maxRequestsPerHost, priorKnowledge));
+    }
+
+    private static OkHttpClient configure(OkHttpClient okHttpClient, int maxRequests, int maxRequestsPerHost, boolean priorKnowledge) {
+        if (maxRequests <= 0)
+            throw new IllegalArgumentException("Max requests must be positive: " + maxRequests);
+        if (maxRequestsPerHost <= 0)
+            throw new IllegalArgumentException("Max requests per host must be positive: " + maxRequestsPerHost);
+        Dispatcher dispatcher = new Dispatcher(okHttpClient.dispatcher().executorService());
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return okHttpClient.newBuilder()
+                .dispatcher(dispatcher)
+                .protocols(priorKnowledge ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE) : Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Call call = okHttpClient.newCall(requestDispatcher.buildRequest(request, jsonProvider));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.warn("Cannot execute request {}: {}", request.getHttpMethod(), request.getUrl(), e);
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response httpResponse) {
+                try (okhttp3.Response closeable = httpResponse) {
+                    future.complete(requestDispatcher.buildResponse(closeable, jsonProvider, options));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+        return future;
+    }
+
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    public boolean isBufferedBody() {
+        return requestDispatcher.isBufferedBody();
+    }
+
+    public void setBufferedBody(boolean bufferedBody) {
+        requestDispatcher.setBufferedBody(bufferedBody);
+    }
+
+}
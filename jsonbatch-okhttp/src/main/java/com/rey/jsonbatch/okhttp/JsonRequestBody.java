@@ -0,0 +1,41 @@
+package com.rey.jsonbatch.okhttp;
+
+import com.rey.jsonbatch.JsonWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+class JsonRequestBody extends RequestBody {
+
+    private final Object body;
+    private final byte[] encodedBody;
+    private final JsonWriter jsonWriter;
+
+    JsonRequestBody(Object body, byte[] encodedBody, JsonWriter jsonWriter) {
+        this.body = body;
+        this.encodedBody = encodedBody;
+        this.jsonWriter = jsonWriter;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return OkHttpRequestDispatcher.JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return encodedBody != null ? encodedBody.length : -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (encodedBody != null)
+            sink.write(encodedBody);
+        else {
+            jsonWriter.write(body, sink.outputStream());
+            sink.emit();
+        }
+    }
+}
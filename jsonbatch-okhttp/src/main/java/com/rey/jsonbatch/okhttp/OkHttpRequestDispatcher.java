@@ -1,22 +1,32 @@
 package com.rey.jsonbatch.okhttp;
 
 import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.JsonProjector;
+import com.rey.jsonbatch.JsonWriter;
 import com.rey.jsonbatch.RequestDispatcher;
 import com.rey.jsonbatch.model.DispatchOptions;
 import com.rey.jsonbatch.model.Request;
 import com.rey.jsonbatch.model.Response;
+import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
-import okhttp3.RequestBody;
+import okio.Okio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class OkHttpRequestDispatcher implements RequestDispatcher {
 
     private Logger logger = LoggerFactory.getLogger(OkHttpRequestDispatcher.class);
 
     private OkHttpClient okHttpClient;
 
+    private boolean bufferedBody;
+
     public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
     public OkHttpRequestDispatcher(OkHttpClient okHttpClient) {
@@ -25,48 +35,77 @@ public class OkHttpRequestDispatcher implements RequestDispatcher {
 
     @Override
     public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        try (okhttp3.Response httpResponse = okHttpClient.newCall(buildRequest(request, jsonProvider)).execute()) {
+            return buildResponse(httpResponse, jsonProvider, options);
+        }
+    }
+
+    okhttp3.Request buildRequest(Request request, JsonProvider jsonProvider) {
         okhttp3.Request.Builder requestBuilder = new okhttp3.Request.Builder();
         logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
         requestBuilder.url(request.getUrl());
         request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
         if(request.getBody() != null) {
-            String json = jsonProvider.toJson(request.getBody());
-            logger.debug("Request body: {}", json);
-            requestBuilder.method(request.getHttpMethod(), RequestBody.create(json, JSON));
+            if(logger.isDebugEnabled())
+                logger.debug("Request body: {}", jsonProvider.toJson(request.getBody()));
+            JsonWriter jsonWriter = new JsonWriter(jsonProvider);
+            byte[] encodedBody = request.getEncodedBody() == null && bufferedBody ? jsonWriter.encode(request.getBody()) : request.getEncodedBody();
+            requestBuilder.method(request.getHttpMethod(), new JsonRequestBody(request.getBody(), encodedBody, jsonWriter));
         }
         else
             requestBuilder.method(request.getHttpMethod(), null);
+        return requestBuilder.build();
+    }
 
-        try (okhttp3.Response httpResponse = okHttpClient.newCall(requestBuilder.build()).execute()) {
-            Response response = new Response();
-            response.setStatus(httpResponse.code());
-            if(options.getFailBackAsString())
-                try {
-                    String bodyAsString = httpResponse.body().string();
-                    response.setBody(bodyAsString);
-                    try {
-                        response.setBody(jsonProvider.parse(bodyAsString));
-                    }
-                    catch (Exception ex) {
-                        logger.warn("Cannot parse response body as JSON", ex);
-                    }
-                }
-                catch (Exception e) {
-                    logger.warn("Cannot parse response body as String", e);
-                    if(!options.getIgnoreParsingError())
-                        throw e;
-                }
-            else
+    Response buildResponse(okhttp3.Response httpResponse, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        Response response = new Response();
+        Map<String, List<String>> headerMap = new HashMap<>();
+        Headers headers = httpResponse.headers();
+        for(int i = 0; i < headers.size(); i++) {
+            headerMap.computeIfAbsent(headers.name(i), key -> new ArrayList<>()).add(headers.value(i));
+        }
+
+        response.setStatus(httpResponse.code());
+        response.setHeaders(headerMap);
+        if(options.getDiscardBody())
+            httpResponse.body().source().readAll(Okio.blackhole());
+        else if(options.getFailBackAsString())
+            try {
+                String bodyAsString = httpResponse.body().string();
+                response.setBody(bodyAsString);
                 try {
-                    response.setBody(jsonProvider.parse(httpResponse.body().byteStream(), "UTF-8"));
+                    response.setBody(jsonProvider.parse(bodyAsString));
                 }
                 catch (Exception ex) {
                     logger.warn("Cannot parse response body as JSON", ex);
-                    if(!options.getIgnoreParsingError())
-                        throw ex;
                 }
+            }
+            catch (Exception e) {
+                logger.warn("Cannot parse response body as String", e);
+                if(!options.getIgnoreParsingError())
+                    throw e;
+            }
+        else
+            try {
+                if(options.getProjection() != null)
+                    response.setBody(new JsonProjector(options.getProjection()).parse(httpResponse.body().byteStream(), jsonProvider));
+                else
+                    response.setBody(jsonProvider.parse(httpResponse.body().byteStream(), "UTF-8"));
+            }
+            catch (Exception ex) {
+                logger.warn("Cannot parse response body as JSON", ex);
+                if(!options.getIgnoreParsingError())
+                    throw ex;
+            }
+        return response;
+    }
 
-            return response;
-        }
+    public boolean isBufferedBody() {
+        return bufferedBody;
+    }
+
+    public void setBufferedBody(boolean bufferedBody) {
+        this.bufferedBody = bufferedBody;
     }
+
 }
@@ -0,0 +1,197 @@
+package com.rey.jsonbatch.okhttp
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.PropertyNamingStrategy
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.JsonPath
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.JsonBuilder
+import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class AsyncOkHttpRequestDispatcherTest {
+
+    private lateinit var server: MockWebServer
+
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var configuration: Configuration
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        objectMapper = ObjectMapper()
+        objectMapper.propertyNamingStrategy = PropertyNamingStrategy.SNAKE_CASE
+        configuration = Configuration.builder()
+                .jsonProvider(JacksonJsonProvider(objectMapper))
+                .mappingProvider(JacksonMappingProvider(objectMapper))
+                .build()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun request(path: String): Request {
+        val request = Request()
+        request.httpMethod = "GET"
+        request.url = server.url(path).toString()
+        request.headers = mapOf()
+        return request
+    }
+
+    private fun awaitAll(count: Int): Dispatcher {
+        val latch = CountDownLatch(count)
+        return object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                latch.countDown()
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    return MockResponse().setResponseCode(504)
+                return MockResponse().setBody("""{ "id": ${request.path!!.substring(1)}, "ignored": [1, 2, 3] }""")
+            }
+        }
+    }
+
+    @Test
+    fun executeAsync__withHttp2PriorKnowledge() {
+        server.protocols = listOf(Protocol.H2_PRIOR_KNOWLEDGE)
+        server.dispatcher = awaitAll(8)
+        server.start()
+
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 8\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "concurrency": 8,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "${server.url("/")}@{$.requests[0].counter}@",
+                                    "body": null
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": "$.responses[0].times[*][*].body.id"
+                    }
+                ]
+            }
+        """.let { objectMapper.readValue(it, BatchTemplate::class.java) }
+
+        val dispatcher = AsyncOkHttpRequestDispatcher(OkHttpClient(), 64, 8, true)
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val response = engine.executeAsync(Request(), template).get(20, TimeUnit.SECONDS)
+        assertEquals(listOf(0, 1, 2, 3, 4, 5, 6, 7), response.body)
+        val sequenceNumbers = (0 until 8).map { server.takeRequest().sequenceNumber }.toSet()
+        assertEquals((0 until 8).toSet(), sequenceNumbers)
+        assertEquals(1, dispatcher.okHttpClient.connectionPool.connectionCount())
+    }
+
+    @Test
+    fun dispatch__withHttp1() {
+        server.dispatcher = awaitAll(4)
+        server.start()
+
+        val dispatcher = AsyncOkHttpRequestDispatcher(OkHttpClient(), 64, 4, false)
+        val futures = (0 until 4).map { dispatcher.dispatch(request("/$it"), configuration.jsonProvider(), DispatchOptions()) }
+        futures.forEachIndexed { index, future ->
+            val response = future.get(20, TimeUnit.SECONDS)
+            assertEquals(200, response.status)
+            assertEquals(index, JsonPath.using(configuration).parse(response.body).read("$.id", Int::class.java))
+        }
+        assertEquals(listOf(0, 0, 0, 0), (0 until 4).map { server.takeRequest().sequenceNumber })
+        assertEquals(4, dispatcher.okHttpClient.connectionPool.connectionCount())
+    }
+
+    @Test
+    fun dispatch__withJsonBody() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.enqueue(MockResponse().setBody("""{ "id": 2 }"""))
+        server.start()
+        val dispatcher = AsyncOkHttpRequestDispatcher(OkHttpClient())
+
+        val request = request("/0")
+        request.httpMethod = "POST"
+        request.body = mapOf("name" to "\u00e9", "tags" to listOf(1, true))
+        dispatcher.dispatch(request, configuration.jsonProvider(), DispatchOptions()).get(20, TimeUnit.SECONDS)
+        request.encodedBody = """{"name":"b"}""".toByteArray()
+        dispatcher.dispatch(request, configuration.jsonProvider(), DispatchOptions()).get(20, TimeUnit.SECONDS)
+
+        var recordedRequest = server.takeRequest()
+        assertEquals("application/json; charset=utf-8", recordedRequest.getHeader("Content-Type"))
+        assertEquals("chunked", recordedRequest.getHeader("Transfer-Encoding"))
+        assertEquals("{\"name\":\"\u00e9\",\"tags\":[1,true]}", recordedRequest.body.readUtf8())
+        recordedRequest = server.takeRequest()
+        assertEquals("12", recordedRequest.getHeader("Content-Length"))
+        assertEquals("""{"name":"b"}""", recordedRequest.body.readUtf8())
+    }
+
+    @Test
+    fun dispatch__withBufferedBody() {
+        server.enqueue(MockResponse().setBody("""{ "id": 1 }"""))
+        server.start()
+        val dispatcher = AsyncOkHttpRequestDispatcher(OkHttpClient())
+        dispatcher.isBufferedBody = true
+
+        val request = request("/0")
+        request.httpMethod = "POST"
+        request.body = mapOf("name" to "\u00e9")
+        dispatcher.dispatch(request, configuration.jsonProvider(), DispatchOptions()).get(20, TimeUnit.SECONDS)
+
+        val recordedRequest = server.takeRequest()
+        assertEquals(null, recordedRequest.getHeader("Transfer-Encoding"))
+        assertEquals("13", recordedRequest.getHeader("Content-Length"))
+        assertEquals("{\"name\":\"\u00e9\"}", recordedRequest.body.readUtf8())
+    }
+
+    @Test
+    fun dispatch__withMaxRequestsPerHost() {
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> maxOf(a, b) }
+                Thread.sleep(50)
+                active.decrementAndGet()
+                return MockResponse().setBody("""{ "id": 1 }""")
+            }
+        }
+        server.start()
+
+        val dispatcher = AsyncOkHttpRequestDispatcher(OkHttpClient(), 64, 2, false)
+        val options = DispatchOptions()
+        options.projection = listOf("$['id']")
+        val futures = (0 until 6).map { dispatcher.dispatch(request("/$it"), configuration.jsonProvider(), options) }
+        futures.forEach { assertEquals(mapOf("id" to 1), it.get(20, TimeUnit.SECONDS).body) }
+        assertTrue(maxActive.get() <= 2)
+        assertEquals(6, server.requestCount)
+    }
+
+}